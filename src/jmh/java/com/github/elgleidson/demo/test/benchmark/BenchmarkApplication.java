@@ -0,0 +1,65 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.time.LocalDate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.github.elgleidson.demo.test.DemoTestApplication;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonBatchImporter;
+
+/**
+ * Boots the application without the web layer against its own in-memory H2, and builds deterministic persons to seed
+ * it with.
+ */
+final class BenchmarkApplication {
+
+	private BenchmarkApplication() {
+	}
+
+	static ConfigurableApplicationContext start(String database, String... properties) {
+		return start(WebApplicationType.NONE, "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;LAZY_QUERY_EXECUTION=1", properties);
+	}
+
+	static ConfigurableApplicationContext start(WebApplicationType type, String url, String... properties) {
+		// passed as arguments, default properties would lose against application.yml
+		Stream<String> defaults = Stream.of(
+				"spring.datasource.url=" + url,
+				"spring.jpa.show-sql=false",
+				"spring.h2.console.enabled=false",
+				"logging.level.root=WARN");
+		String[] args = Stream.concat(defaults, Stream.of(properties)).map(p -> "--" + p).toArray(String[]::new);
+		return new SpringApplicationBuilder(DemoTestApplication.class)
+				.web(type)
+				.run(args);
+	}
+
+	static void seed(ConfigurableApplicationContext context, int rows) {
+		context.getBean(PersonBatchImporter.class).importAll(IntStream.range(0, rows).mapToObj(BenchmarkApplication::person).iterator(), result -> {});
+	}
+
+	static long[] ids(ConfigurableApplicationContext context) {
+		return context.getBean(JdbcTemplate.class).queryForList("select id from person order by id", Long.class)
+				.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	static Person person(int index) {
+		return new Person()
+				.name("Person " + index)
+				.birthday(LocalDate.of(1950, 1, 1).plusDays(index % 20000))
+				.phone(String.format("%010d", index))
+				.nin(nin(index));
+	}
+
+	static String nin(int index) {
+		char first = (char) ('A' + (index / 1_000_000) % 26);
+		char second = (char) ('A' + (index / 26_000_000) % 26);
+		return String.format("%c%c%06dZ", first, second, index % 1_000_000);
+	}
+
+}
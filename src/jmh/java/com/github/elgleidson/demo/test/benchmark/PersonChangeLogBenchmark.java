@@ -0,0 +1,74 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+/**
+ * What numbering the changes under the lock of the {@code person_change_sequence} row costs concurrent writers: the
+ * same insert with the change recorded and without, from several threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PersonChangeLogBenchmark {
+
+	private ConfigurableApplicationContext context;
+
+	private PersonService service;
+
+	private PersonRepository repository;
+
+	private TransactionTemplate transaction;
+
+	private AtomicInteger next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkApplication.start("change-log");
+		service = context.getBean(PersonService.class);
+		repository = context.getBean(PersonRepository.class);
+		transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		next = new AtomicInteger();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Person insertRecorded() {
+		return service.save(BenchmarkApplication.person(next.getAndIncrement()));
+	}
+
+	@Benchmark
+	public Person insertUnrecorded() {
+		return transaction.execute(status -> repository.saveAndFlush(BenchmarkApplication.person(next.getAndIncrement())));
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.elgleidson.demo.test.domain.Person;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonJsonBenchmark {
+
+	@Param({ "100", "1000" })
+	private int size;
+
+	private ObjectWriter personWriter;
+
+	private ObjectWriter listWriter;
+
+	private Person person;
+
+	private List<Person> persons;
+
+	@Setup
+	public void setUp() {
+		// same serialization settings as spring.jackson.* in application.yml
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		personWriter = builder.build().writerFor(Person.class);
+		listWriter = builder.build().writerFor(builder.build().getTypeFactory().constructCollectionType(List.class, Person.class));
+		persons = IntStream.range(0, size).mapToObj(this::person).collect(Collectors.toList());
+		person = persons.get(0);
+	}
+
+	private Person person(int index) {
+		Person person = BenchmarkApplication.person(index);
+		ReflectionTestUtils.setField(person, "id", (long) index + 1);
+		return person;
+	}
+
+	@Benchmark
+	public byte[] serializePerson() throws JsonProcessingException {
+		return personWriter.writeValueAsBytes(person);
+	}
+
+	@Benchmark
+	public byte[] serializeList() throws JsonProcessingException {
+		return listWriter.writeValueAsBytes(persons);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonRepositoryBenchmark {
+
+	@Param({ "10000", "100000" })
+	private int rows;
+
+	private ConfigurableApplicationContext context;
+
+	private static final int PAGE_SIZE = 1000;
+
+	private PersonRepository repository;
+
+	private PersonService service;
+
+	private long[] ids;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkApplication.start("repository");
+		BenchmarkApplication.seed(context, rows);
+		repository = context.getBean(PersonRepository.class);
+		service = context.getBean(PersonService.class);
+		ids = BenchmarkApplication.ids(context);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Optional<Person> findById() {
+		return repository.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	@Benchmark
+	public Optional<Person> findByNin() {
+		return repository.findByNin(BenchmarkApplication.nin(ThreadLocalRandom.current().nextInt(rows)));
+	}
+
+	// a page of managed entities against the same page as DTOs, run with -prof gc to compare the allocation per row
+
+	@Benchmark
+	public List<Person> pageOfEntities() {
+		return repository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, PAGE_SIZE));
+	}
+
+	@Benchmark
+	public List<PersonView> pageOfViews() {
+		return service.findViewsAfter(0L, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<PersonSummary> pageOfSummaries() {
+		return service.findSummariesAfter(0L, PAGE_SIZE);
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonServiceBenchmark {
+
+	@Param({ "10000" })
+	private int rows;
+
+	private ConfigurableApplicationContext context;
+
+	private PersonService service;
+
+	private AtomicInteger next;
+
+	private long[] ids;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkApplication.start("service");
+		BenchmarkApplication.seed(context, rows);
+		service = context.getBean(PersonService.class);
+		next = new AtomicInteger(rows);
+		ids = BenchmarkApplication.ids(context);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Person insert() {
+		return service.save(BenchmarkApplication.person(next.getAndIncrement()));
+	}
+
+	@Benchmark
+	public Person update() {
+		int index = next.getAndIncrement();
+		Person person = service.findById(ids[index % ids.length]).get();
+		return service.save(person.name("Person " + index));
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.HibernateValidatorFactory;
+import org.hibernate.validator.constraints.Length;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+/**
+ * {@link Person} against {@link RegexPerson}, which keeps the former {@code @Pattern} constraints. Run with
+ * {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonValidationBenchmark {
+
+	private Validator validator;
+
+	private Validator failFastValidator;
+
+	private Person valid;
+
+	private Person invalid;
+
+	private RegexPerson regexValid;
+
+	private RegexPerson regexInvalid;
+
+	@Setup
+	public void setUp() {
+		ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+		validator = factory.getValidator();
+		failFastValidator = factory.unwrap(HibernateValidatorFactory.class).usingContext().failFast(true).getValidator();
+		valid = BenchmarkApplication.person(1);
+		invalid = BenchmarkApplication.person(2).name("").phone("12345").nin("ab123456c");
+		regexValid = new RegexPerson(valid);
+		regexInvalid = new RegexPerson(invalid);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Person>> validateValid() {
+		return validator.validate(valid);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Person>> validateInvalid() {
+		return validator.validate(invalid);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Person>> validateInvalidFailFast() {
+		return failFastValidator.validate(invalid);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<RegexPerson>> validateValidRegex() {
+		return validator.validate(regexValid);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<RegexPerson>> validateInvalidRegex() {
+		return validator.validate(regexInvalid);
+	}
+
+	public static class RegexPerson {
+
+		@NotBlank(message = "Name cannot be empty or null")
+		@Length(max = 100, message = "Name cannot be longer than 100 characteres")
+		private final String name;
+
+		@NotNull(message = "Birthday cannot be null")
+		private final LocalDate birthday;
+
+		@Pattern(regexp = "^[0-9]{10}$", message = "Phone must have 10 numbers")
+		private final String phone;
+
+		@Pattern(regexp = "^[A-Z]{2}[0-9]{6}[A-Z]$", message = "NIN must have 2 letters + 6 numbers + 1 letter")
+		private final String nin;
+
+		RegexPerson(Person person) {
+			this.name = person.getName();
+			this.birthday = person.getBirthday();
+			this.phone = person.getPhone();
+			this.nin = person.getNin();
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.github.elgleidson.demo.test.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cold start of the whole application, web server included, one start per fork. The database is a file that outlives
+ * the forks, like the database of a rolling deploy, so only the first fork of each profile migrates it.
+ * <p>
+ * With faststart, {@code start} leaves out the beans created by the first request; {@code startAndServe} includes them.
+ * For AppCDS, record an archive with {@code -f 1 -jvmArgsAppend -XX:ArchiveClassesAtExit=target/startup.jsa} and then
+ * run with {@code -jvmArgsAppend -XX:SharedArchiveFile=target/startup.jsa}; both runs must share the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+	@Param({ "default", "faststart" })
+	public String profile;
+
+	private ConfigurableApplicationContext context;
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ConfigurableApplicationContext start() {
+		context = BenchmarkApplication.start(WebApplicationType.SERVLET, "jdbc:h2:file:./target/h2/startup-" + profile, "server.port=0",
+				"spring.profiles.active=" + profile);
+		return context;
+	}
+
+	@Benchmark
+	public int startAndServe() throws IOException, InterruptedException {
+		String port = start().getEnvironment().getProperty("local.server.port");
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/persons/summary?size=10")).build();
+		return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+}
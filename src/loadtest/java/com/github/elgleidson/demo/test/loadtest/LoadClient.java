@@ -0,0 +1,117 @@
+package com.github.elgleidson.demo.test.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Recorder;
+
+/**
+ * Sends the requests of a scenario and records the latency of every one of them per operation. A response with an
+ * unexpected status or a failed exchange counts as an error of that operation instead.
+ */
+class LoadClient {
+
+	private static final long MAX_LATENCY_NANOS = Duration.ofMinutes(1).toNanos();
+
+	private final HttpClient client;
+
+	private final URI baseUri;
+
+	private final Map<String, Recorder> latencies = new ConcurrentHashMap<>();
+
+	private final Map<String, Map<String, LongAdder>> errors = new ConcurrentHashMap<>();
+
+	private volatile boolean recording;
+
+	LoadClient(URI baseUri) {
+		this.baseUri = baseUri;
+		// HTTP/1.1 keeps one connection per concurrent request, as most service clients would
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+	}
+
+	void recording(boolean recording) {
+		this.recording = recording;
+	}
+
+	Map<String, Recorder> latencies() {
+		return latencies;
+	}
+
+	/** Error counts by operation, then by cause. */
+	Map<String, Map<String, LongAdder>> errors() {
+		return errors;
+	}
+
+	HttpRequest.Builder request(String path) {
+		return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(Duration.ofSeconds(30));
+	}
+
+	HttpResponse<String> get(String operation, String path, int... expected) {
+		return send(operation, request(path).GET().build(), expected);
+	}
+
+	HttpResponse<String> post(String operation, String path, String contentType, String body, int... expected) {
+		return send(operation, request(path).header("Content-Type", contentType).POST(BodyPublishers.ofString(body)).build(), expected);
+	}
+
+	HttpResponse<String> put(String operation, String path, String body, int... expected) {
+		return send(operation, request(path).header("Content-Type", "application/json").PUT(BodyPublishers.ofString(body)).build(), expected);
+	}
+
+	HttpResponse<String> delete(String operation, String path, int... expected) {
+		return send(operation, request(path).DELETE().build(), expected);
+	}
+
+	/**
+	 * Returns the response, or {@code null} when the exchange itself failed.
+	 */
+	HttpResponse<String> send(String operation, HttpRequest request, int... expected) {
+		long start = System.nanoTime();
+		HttpResponse<String> response;
+		try {
+			response = client.send(request, BodyHandlers.ofString());
+		} catch (IOException e) {
+			error(operation, e.getClass().getSimpleName());
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		long latency = System.nanoTime() - start;
+
+		if (!isExpected(response.statusCode(), expected)) {
+			error(operation, "HTTP " + response.statusCode());
+		} else if (recording) {
+			latencies.computeIfAbsent(operation, o -> new Recorder(MAX_LATENCY_NANOS, 3)).recordValue(Math.min(latency, MAX_LATENCY_NANOS));
+		}
+		return response;
+	}
+
+	private static boolean isExpected(int status, int... expected) {
+		for (int e : expected) {
+			if (e == status) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void error(String operation, String cause) {
+		if (recording) {
+			errors.computeIfAbsent(operation, o -> new ConcurrentHashMap<>()).computeIfAbsent(cause, c -> new LongAdder()).increment();
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.github.elgleidson.demo.test.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.github.elgleidson.demo.test.DemoTestApplication;
+
+/**
+ * Closed-loop HTTP load test of {@code /api/persons}. Unless {@code --url} points at a running instance, it starts the
+ * application itself on a free port with its own in-memory H2, so it runs offline. The database is seeded with
+ * {@code --rows} deterministic persons through the batch endpoint, then every scenario runs with {@code --concurrency}
+ * workers for a warm-up and a measured period. Latency percentiles, throughput and errors are reported per operation.
+ * Workers send their next request as soon as the previous one is answered, so a stall shows up in throughput and max
+ * rather than in every percentile.
+ *
+ * <pre>
+ * mvn -Ploadtest verify -DskipTests -Dloadtest.args="--scenarios=nin_lookups,mixed_crud --concurrency=64 --duration=60s"
+ * </pre>
+ *
+ * Options: {@code --url}, {@code --rows} (10000), {@code --concurrency} (32), {@code --warmup} (10s), {@code --duration}
+ * (30s), {@code --seed} (42) and {@code --scenarios} (all of {@link Scenario}). Against an external instance, start from
+ * an empty database: persons created by an earlier run would collide with this run's NINs, and with admission control
+ * off or limits above the load, all workers count as one client.
+ */
+public final class LoadTest {
+
+	private static final int SEED_CHUNK = 1000;
+
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = options(args);
+		int rows = Integer.parseInt(options.getOrDefault("rows", "10000"));
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+		Duration warmup = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s"));
+		Duration duration = DurationStyle.detectAndParse(options.getOrDefault("duration", "30s"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+		List<Scenario> scenarios = options.containsKey("scenarios")
+				? Arrays.stream(options.get("scenarios").split(",")).map(s -> Scenario.valueOf(s.trim().toUpperCase(Locale.ROOT))).collect(Collectors.toList())
+				: Arrays.asList(Scenario.values());
+		if (concurrency < 1 || concurrency > Scenario.Worker.MAX_WORKERS) {
+			throw new IllegalArgumentException("--concurrency must be between 1 and " + Scenario.Worker.MAX_WORKERS);
+		}
+
+		ConfigurableApplicationContext context = options.containsKey("url") ? null : start();
+		try {
+			URI baseUri = URI.create(options.containsKey("url") ? options.get("url") : "http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+			System.out.printf("Target %s, %d rows, %d workers, %s warm-up, %s measured, seed %d%n", baseUri, rows, concurrency, warmup, duration, seed);
+
+			long firstId = seed(new LoadClient(baseUri), rows);
+			for (int run = 0; run < scenarios.size(); run++) {
+				run(baseUri, scenarios.get(run), run, concurrency, warmup, duration, seed, rows, firstId);
+			}
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+
+	private static Map<String, String> options(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				throw new IllegalArgumentException("Expected --name=value, got " + arg);
+			}
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		return options;
+	}
+
+	private static ConfigurableApplicationContext start() {
+		// passed as arguments, default properties would lose against application.yml
+		return new SpringApplicationBuilder(DemoTestApplication.class).run(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;LAZY_QUERY_EXECUTION=1",
+				"--spring.jpa.show-sql=false",
+				"--spring.h2.console.enabled=false",
+				// all workers are one client, the limits would be measured instead of the application
+				"--demo.admission.enabled=false",
+				"--logging.level.root=WARN");
+	}
+
+	/**
+	 * Seeds the persons through {@code POST /api/persons/batch} and returns the id of the first one.
+	 */
+	private static long seed(LoadClient client, int rows) {
+		long start = System.nanoTime();
+		long firstId = Long.MAX_VALUE;
+		for (int from = 0; from < rows; from += SEED_CHUNK) {
+			String ndjson = IntStream.range(from, Math.min(rows, from + SEED_CHUNK)).mapToObj(LoadTestData::json).collect(Collectors.joining("\n"));
+			HttpResponse<String> response = client.post("seed", "/api/persons/batch", "application/x-ndjson", ndjson, 200);
+			if (response == null || response.statusCode() != 200) {
+				throw new IllegalStateException("Seeding failed: " + (response == null ? "no response" : response.statusCode() + " " + response.body()));
+			}
+			for (Long id : LoadTestData.ids(response.body())) {
+				firstId = Math.min(firstId, id);
+			}
+		}
+		if (firstId == Long.MAX_VALUE) {
+			throw new IllegalStateException("Seeding created no persons, is the database empty?");
+		}
+		System.out.printf("Seeded %d persons in %d ms%n", rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return firstId;
+	}
+
+	private static void run(URI baseUri, Scenario scenario, int run, int concurrency, Duration warmup, Duration duration, long seed, int rows,
+			long firstId) throws Exception {
+		LoadClient client = new LoadClient(baseUri);
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		long warmupEnd = System.nanoTime() + warmup.toNanos();
+		long end = warmupEnd + duration.toNanos();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int number = 0; number < concurrency; number++) {
+			Scenario.Worker worker = new Scenario.Worker(seed, number, run, rows, firstId);
+			futures.add(workers.submit(() -> {
+				while (System.nanoTime() < end) {
+					scenario.step(client, worker);
+				}
+			}));
+		}
+
+		TimeUnit.NANOSECONDS.sleep(warmupEnd - System.nanoTime());
+		client.recording(true);
+		long measuredFrom = System.nanoTime();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long measuredNanos = System.nanoTime() - measuredFrom;
+		workers.shutdown();
+
+		report(scenario, client, measuredNanos);
+	}
+
+	private static void report(Scenario scenario, LoadClient client, long measuredNanos) {
+		double seconds = measuredNanos / 1e9;
+		System.out.printf("%n%s (%.1f s measured)%n", scenario.name().toLowerCase(Locale.ROOT), seconds);
+		System.out.printf("  %-24s %9s %9s %9s %9s %9s %9s %8s%n", "operation", "ok", "ok/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+
+		Map<String, Histogram> histograms = new TreeMap<>();
+		client.latencies().forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+		client.errors().keySet().forEach(operation -> histograms.computeIfAbsent(operation, o -> new Histogram(3)));
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			Histogram h = entry.getValue();
+			long errors = client.errors().getOrDefault(entry.getKey(), Collections.emptyMap()).values().stream().mapToLong(LongAdder::sum).sum();
+			System.out.printf("  %-24s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %8d%n", entry.getKey(), h.getTotalCount(), h.getTotalCount() / seconds,
+					millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(95)), millis(h.getValueAtPercentile(99)), millis(h.getMaxValue()),
+					errors);
+		}
+		client.errors().forEach((operation, causes) -> causes.forEach((cause, count) ->
+				System.out.printf("  error: %s %s x %d%n", operation, cause, count.sum())));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+}
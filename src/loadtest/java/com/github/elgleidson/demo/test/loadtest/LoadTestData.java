@@ -0,0 +1,41 @@
+package com.github.elgleidson.demo.test.loadtest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic persons: the same index always gives the same person, so a seeded database can be targeted without
+ * reading it back first.
+ */
+final class LoadTestData {
+
+	private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+	private LoadTestData() {
+	}
+
+	static String json(int index) {
+		return String.format("{\"name\":\"Person %d\",\"birthday\":\"%s\",\"phone\":\"%010d\",\"nin\":\"%s\"}", index,
+				LocalDate.of(1950, 1, 1).plusDays(index % 20000), index % 1_000_000_000L, nin(index));
+	}
+
+	/** The ids found in a created person or in batch results. */
+	static List<Long> ids(String body) {
+		List<Long> ids = new ArrayList<>();
+		Matcher matcher = ID.matcher(body);
+		while (matcher.find()) {
+			ids.add(Long.valueOf(matcher.group(1)));
+		}
+		return ids;
+	}
+
+	static String nin(int index) {
+		char first = (char) ('A' + (index / 1_000_000) % 26);
+		char second = (char) ('A' + (index / 26_000_000) % 26);
+		return String.format("%c%c%06dZ", first, second, index % 1_000_000);
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.github.elgleidson.demo.test.loadtest;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The traffic mixes. Each step is one user action, run over and over by every worker with its own seeded random.
+ */
+enum Scenario {
+
+	/** Read heavy: NIN lookups over the seeded persons, one in twenty for a NIN nobody has. */
+	NIN_LOOKUPS {
+		@Override
+		void step(LoadClient client, Worker worker) {
+			if (worker.random.nextInt(20) == 0) {
+				client.get("GET /nin (miss)", "/api/persons/nin/" + LoadTestData.nin(worker.rows + worker.random.nextInt(worker.rows)), 404);
+			} else {
+				client.get("GET /nin", "/api/persons/nin/" + LoadTestData.nin(worker.random.nextInt(worker.rows)), 200);
+			}
+		}
+	},
+
+	/** 60% reads by id, 20% creates, 15% updates and 5% deletes, the latter two on persons the worker created. */
+	MIXED_CRUD {
+		@Override
+		void step(LoadClient client, Worker worker) {
+			int action = worker.random.nextInt(100);
+			if (action < 60 || worker.created.isEmpty() && action >= 80) {
+				client.get("GET /{id}", "/api/persons/" + (worker.firstId + worker.random.nextInt(worker.rows)), 200, 404);
+			} else if (action < 80) {
+				HttpResponse<String> response = client.post("POST", "/api/persons", "application/json", LoadTestData.json(worker.nextIndex()), 201);
+				Long id = idOf(response);
+				if (id != null) {
+					worker.created.addLast(id);
+				}
+			} else if (action < 95) {
+				long id = worker.created.peekLast();
+				client.put("PUT /{id}", "/api/persons/" + id, LoadTestData.json(worker.nextIndex()), 202);
+			} else {
+				client.delete("DELETE /{id}", "/api/persons/" + worker.created.pollFirst(), 204);
+			}
+		}
+	},
+
+	/** Keyset pages of full rows and of summaries from random positions. */
+	BULK_LISTING {
+		@Override
+		void step(LoadClient client, Worker worker) {
+			long after = worker.firstId - 1 + worker.random.nextInt(worker.rows);
+			if (worker.random.nextBoolean()) {
+				client.get("GET ?size=500", "/api/persons?size=500&after=" + after, 200);
+			} else {
+				client.get("GET /summary?size=1000", "/api/persons/summary?size=1000&after=" + after, 200);
+			}
+		}
+	},
+
+	/** Nothing but creates, as fast as the workers can send them. */
+	CREATE_BURST {
+		@Override
+		void step(LoadClient client, Worker worker) {
+			client.post("POST", "/api/persons", "application/json", LoadTestData.json(worker.nextIndex()), 201);
+		}
+	};
+
+	abstract void step(LoadClient client, Worker worker);
+
+	static Long idOf(HttpResponse<String> response) {
+		if (response == null || response.statusCode() != 201) {
+			return null;
+		}
+		List<Long> ids = LoadTestData.ids(response.body());
+		return ids.isEmpty() ? null : ids.get(0);
+	}
+
+	/**
+	 * State of one worker. Persons it creates take indexes from a range of its own past the seeded ones, so their NINs
+	 * never collide, whichever run or worker created them.
+	 */
+	static final class Worker {
+
+		static final int MAX_WORKERS = 128;
+
+		private static final int INDEXES_PER_WORKER = 1_000_000;
+
+		final Random random;
+
+		final int rows;
+
+		final long firstId;
+
+		final Deque<Long> created = new ArrayDeque<>();
+
+		private final AtomicInteger next;
+
+		Worker(long seed, int number, int run, int rows, long firstId) {
+			this.random = new Random(seed * 31 + number);
+			this.rows = rows;
+			this.firstId = firstId;
+			this.next = new AtomicInteger(rows * 2 + (run * MAX_WORKERS + number) * INDEXES_PER_WORKER);
+		}
+
+		int nextIndex() {
+			return next.getAndIncrement();
+		}
+
+	}
+
+}
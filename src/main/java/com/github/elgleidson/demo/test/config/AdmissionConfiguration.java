@@ -0,0 +1,35 @@
+package com.github.elgleidson.demo.test.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "demo.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfiguration {
+
+	@Bean
+	public FilterRegistrationBean<AdmissionFilter> admissionFilter(MeterRegistry meterRegistry,
+			@Value("${demo.admission.read.rate:200}") double readRate, @Value("${demo.admission.read.burst:400}") int readBurst,
+			@Value("${demo.admission.write.rate:50}") double writeRate, @Value("${demo.admission.write.burst:100}") int writeBurst,
+			@Value("${demo.admission.max-clients:100000}") long maxClients, @Value("${demo.admission.api-key-header:X-API-Key}") String apiKeyHeader,
+			@Value("${demo.admission.max-concurrent:100}") int maxConcurrent,
+			@Value("${demo.admission.max-tagged-clients:100}") int maxTaggedClients) {
+		AdmissionFilter filter = new AdmissionFilter(new RateLimiter(readRate, readBurst, maxClients), new RateLimiter(writeRate, writeBurst, maxClients),
+				apiKeyHeader, maxConcurrent, meterRegistry, maxTaggedClients);
+		FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns("/api/persons", "/api/persons/*");
+		// right after the compression one, before anything that does real work
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+		return registration;
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Turns requests away before they take a connection or a query: with 429 once their client used up its
+ * {@link RateLimiter} tokens, reads and writes apart, and with 503 while {@code maxConcurrent} requests are being
+ * served. Both come with a {@code Retry-After}. The client is the value of the API key header, or else the remote
+ * address; the header is taken as sent, so it has to be checked upstream if clients cannot be trusted with it.
+ * <p>
+ * Rejections are counted per client as {@code http.admission.rejected}, the clients beyond {@code maxTaggedClients}
+ * under {@code other}.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+	static final String OTHER_CLIENTS = "other";
+
+	private final RateLimiter reads;
+
+	private final RateLimiter writes;
+
+	private final String apiKeyHeader;
+
+	private final int maxConcurrent;
+
+	private final MeterRegistry meterRegistry;
+
+	private final int maxTaggedClients;
+
+	private final Set<String> taggedClients = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	AdmissionFilter(RateLimiter reads, RateLimiter writes, String apiKeyHeader, int maxConcurrent, MeterRegistry meterRegistry,
+			int maxTaggedClients) {
+		this.reads = reads;
+		this.writes = writes;
+		this.apiKeyHeader = apiKeyHeader;
+		this.maxConcurrent = maxConcurrent;
+		this.meterRegistry = meterRegistry;
+		this.maxTaggedClients = maxTaggedClients;
+		Gauge.builder("http.admission.in-flight", inFlight, AtomicInteger::get).description("Requests admitted and not finished yet")
+				.register(meterRegistry);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String client = client(request);
+		boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+		long wait = (read ? reads : writes).tryAcquire(client, System.nanoTime());
+		if (wait > 0) {
+			reject(response, HttpStatus.TOO_MANY_REQUESTS, wait, client, read, "rate");
+			return;
+		}
+
+		if (inFlight.incrementAndGet() > maxConcurrent) {
+			inFlight.decrementAndGet();
+			reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), client, read, "concurrency");
+			return;
+		}
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private String client(HttpServletRequest request) {
+		String apiKey = request.getHeader(apiKeyHeader);
+		return apiKey == null || apiKey.isEmpty() ? request.getRemoteAddr() : apiKey;
+	}
+
+	private void reject(HttpServletResponse response, HttpStatus status, long waitNanos, String client, boolean read, String reason) {
+		response.setStatus(status.value());
+		// whole seconds, rounded up so a client waiting that long finds a token
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+		String tag = taggedClients.contains(client) || (taggedClients.size() < maxTaggedClients && taggedClients.add(client)) ? client : OTHER_CLIENTS;
+		meterRegistry.counter("http.admission.rejected", "client", tag, "kind", read ? "read" : "write", "reason", reason).increment();
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Holds back the first {@code threshold} bytes of a response. A body that ends within them is sent with a
+ * {@code Content-Length}, which is what Tomcat compares with {@code server.compression.min-response-size}; without it
+ * every streamed JSON body would be compressed, however small. Anything longer, and any asynchronous response, is
+ * passed through as it is written, and so is the output of non-blocking writes once they set a {@link WriteListener}.
+ */
+public class ContentLengthFilter extends OncePerRequestFilter {
+
+	private final int threshold;
+
+	public ContentLengthFilter(int threshold) {
+		this.threshold = threshold;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		BufferingResponse buffering = new BufferingResponse(response);
+		try {
+			filterChain.doFilter(request, buffering);
+		} finally {
+			if (isAsyncStarted(request)) {
+				// what was written before going async, an event stream's first event for one, is not held back either
+				buffering.passThrough();
+				buffering.flushBuffer();
+			} else {
+				buffering.complete();
+			}
+		}
+	}
+
+	private class BufferingResponse extends HttpServletResponseWrapper {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private ServletOutputStream outputStream;
+
+		private PrintWriter writer;
+
+		private boolean passingThrough;
+
+		BufferingResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		private void write(byte[] bytes, int offset, int length) throws IOException {
+			if (!passingThrough && buffer.size() + length > threshold) {
+				passThrough();
+			}
+			if (passingThrough) {
+				getResponse().getOutputStream().write(bytes, offset, length);
+			} else {
+				buffer.write(bytes, offset, length);
+			}
+		}
+
+		void passThrough() throws IOException {
+			if (!passingThrough) {
+				passingThrough = true;
+				if (buffer.size() > 0) {
+					getResponse().getOutputStream().write(buffer.toByteArray());
+					buffer.reset();
+				}
+			}
+		}
+
+		void complete() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			if (!passingThrough && buffer.size() > 0 && !isCommitted()) {
+				getResponse().setContentLength(buffer.size());
+			}
+			passThrough();
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			if (outputStream == null) {
+				outputStream = new ServletOutputStream() {
+
+					@Override
+					public void write(int b) throws IOException {
+						BufferingResponse.this.write(new byte[] { (byte) b }, 0, 1);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						BufferingResponse.this.write(b, off, len);
+					}
+
+					@Override
+					public void flush() throws IOException {
+						if (passingThrough) {
+							getResponse().getOutputStream().flush();
+						}
+					}
+
+					@Override
+					public boolean isReady() {
+						try {
+							return !passingThrough || getResponse().getOutputStream().isReady();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+
+					@Override
+					public void setWriteListener(WriteListener listener) {
+						// non-blocking writes go straight to the container, which alone knows when it can take more
+						try {
+							passThrough();
+							getResponse().getOutputStream().setWriteListener(listener);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				};
+			}
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			}
+			return writer;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			// Spring flushes every response it has written, the held back bytes are committed by complete()
+			if (passingThrough) {
+				super.flushBuffer();
+			}
+		}
+
+		@Override
+		public void resetBuffer() {
+			buffer.reset();
+			super.resetBuffer();
+		}
+
+		@Override
+		public void reset() {
+			buffer.reset();
+			super.reset();
+		}
+
+	}
+
+}
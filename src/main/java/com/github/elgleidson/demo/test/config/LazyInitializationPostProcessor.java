@@ -0,0 +1,31 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Marks every bean definition lazy so beans are created on first use instead of during startup. Lifecycle beans, the
+ * web server and its filters are still created while the context starts, because the context asks for them.
+ */
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+
+	private final Set<String> eagerBeans;
+
+	public LazyInitializationPostProcessor(Set<String> eagerBeans) {
+		this.eagerBeans = eagerBeans;
+	}
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+		for (String name : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition definition = beanFactory.getBeanDefinition(name);
+			if (!eagerBeans.contains(name) && definition.getRole() != BeanDefinition.ROLE_INFRASTRUCTURE) {
+				definition.setLazyInit(true);
+			}
+		}
+	}
+
+}
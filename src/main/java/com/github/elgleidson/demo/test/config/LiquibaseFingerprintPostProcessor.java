@@ -0,0 +1,119 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Skips Liquibase when the changelog files and parameters hash to the fingerprint stored by its last successful run,
+ * which saves parsing the changelog and taking the lock on every start of an up to date database. The fingerprint is
+ * only written once the update finished, so an instance that starts during a migration runs Liquibase and waits for
+ * the lock as usual.
+ */
+public class LiquibaseFingerprintPostProcessor implements BeanPostProcessor {
+
+	private static final Logger log = LoggerFactory.getLogger(LiquibaseFingerprintPostProcessor.class);
+
+	private final LiquibaseProperties properties;
+
+	private final Map<String, String> pending = new ConcurrentHashMap<>();
+
+	public LiquibaseFingerprintPostProcessor(LiquibaseProperties properties) {
+		this.properties = properties;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		if (bean instanceof SpringLiquibase && !properties.isDropFirst()) {
+			SpringLiquibase liquibase = (SpringLiquibase) bean;
+			String fingerprint = fingerprint(liquibase);
+			if (fingerprint.equals(stored(liquibase))) {
+				log.info("Schema fingerprint {} unchanged, skipping Liquibase", fingerprint);
+				liquibase.setShouldRun(false);
+			} else {
+				pending.put(beanName, fingerprint);
+			}
+		}
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		String fingerprint = pending.remove(beanName);
+		if (fingerprint != null) {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(((SpringLiquibase) bean).getDataSource());
+			jdbcTemplate.update("delete from schema_fingerprint");
+			jdbcTemplate.update("insert into schema_fingerprint (fingerprint, updated_at) values (?, ?)", fingerprint, Timestamp.from(Instant.now()));
+		}
+		return bean;
+	}
+
+	String fingerprint(SpringLiquibase liquibase) {
+		String changeLog = liquibase.getChangeLog();
+		String pattern = changeLog.substring(0, changeLog.lastIndexOf('/') + 1) + "**/*.xml";
+		MessageDigest digest = sha256();
+		try {
+			Resource[] resources = new PathMatchingResourcePatternResolver(liquibase.getResourceLoader()).getResources(pattern);
+			Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+			for (Resource resource : resources) {
+				digest.update(resource.getFilename().getBytes(StandardCharsets.UTF_8));
+				try (InputStream in = resource.getInputStream()) {
+					digest.update(in.readAllBytes());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read the Liquibase changelog " + changeLog, e);
+		}
+		Map<String, String> parameters = properties.getParameters() == null ? Map.of() : new TreeMap<>(properties.getParameters());
+		for (Object part : List.of(parameters, Objects.toString(properties.getContexts()), Objects.toString(properties.getLabels()))) {
+			digest.update(part.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static String stored(SpringLiquibase liquibase) {
+		try {
+			return new JdbcTemplate(liquibase.getDataSource()).queryForList("select fingerprint from schema_fingerprint", String.class)
+					.stream().findFirst().orElse(null);
+		} catch (DataAccessException e) {
+			// schema_fingerprint does not exist before the first update
+			return null;
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
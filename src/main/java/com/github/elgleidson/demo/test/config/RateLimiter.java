@@ -0,0 +1,48 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A token bucket per client of {@code burst} tokens refilled at {@code rate} per second, kept as the generic cell rate
+ * algorithm does: one timestamp per client, the moment its bucket would be full again, moved forward with a
+ * compare-and-set for every token taken. No locks and no refill task. A client idle long enough to have a full bucket
+ * is dropped, and so are the least recently seen beyond {@code maxClients}, which only gives them a full bucket back.
+ */
+final class RateLimiter {
+
+	// nanoseconds per token, and for a full bucket
+	private final long interval;
+
+	private final long capacity;
+
+	private final Cache<String, AtomicLong> buckets;
+
+	RateLimiter(double rate, int burst, long maxClients) {
+		this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		this.capacity = interval * burst;
+		this.buckets = Caffeine.newBuilder().maximumSize(maxClients).expireAfterAccess(capacity, TimeUnit.NANOSECONDS).build();
+	}
+
+	/**
+	 * Takes a token of {@code client} at {@code now}, in {@link System#nanoTime()}. Returns 0 when there was one, otherwise
+	 * the nanoseconds until there is.
+	 */
+	long tryAcquire(String client, long now) {
+		AtomicLong bucket = buckets.get(client, key -> new AtomicLong(now));
+		while (true) {
+			long fullAt = bucket.get();
+			long next = Math.max(fullAt, now) + interval;
+			if (next - now > capacity) {
+				return next - capacity - now;
+			}
+			if (bucket.compareAndSet(fullAt, next)) {
+				return 0;
+			}
+		}
+	}
+
+}
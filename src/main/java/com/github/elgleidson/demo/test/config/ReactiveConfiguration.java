@@ -0,0 +1,47 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive execution mode ({@code spring.main.web-application-type=reactive}): WebFlux on Netty, with the blocking
+ * JDBC work moved off the event loop onto a bounded pool.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveConfiguration {
+
+	public static final String JDBC_SCHEDULER = "jdbcScheduler";
+
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		// Tomcat is on the classpath for the servlet mode and would otherwise be picked for WebFlux as well
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public ThreadPoolExecutor jdbcExecutor(@Value("${demo.reactive.jdbc.threads:10}") int threads,
+			@Value("${demo.reactive.jdbc.queue-capacity:1000}") int queueCapacity) {
+		// a full queue rejects the call, which the resource turns into a 503
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+				new CustomizableThreadFactory("jdbc-"), new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	@Bean(name = JDBC_SCHEDULER, destroyMethod = "dispose")
+	public Scheduler jdbcScheduler(ThreadPoolExecutor jdbcExecutor) {
+		return Schedulers.fromExecutorService(jdbcExecutor);
+	}
+
+}
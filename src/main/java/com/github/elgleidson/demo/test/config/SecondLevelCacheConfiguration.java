@@ -0,0 +1,71 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+
+/**
+ * Second-level cache of Hibernate on Caffeine through JCache. The regions are created here with their size and expiry,
+ * Hibernate would otherwise create unbounded ones that never expire. The cache manager gets a URI of its own so
+ * contexts started side by side in one JVM do not share entries.
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.persons.l2-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfiguration {
+
+	@Value("${demo.persons.l2-cache.entity.maximum-size:10000}")
+	private long entityMaximumSize;
+
+	@Value("${demo.persons.l2-cache.entity.expire-after-write:10m}")
+	private Duration entityExpireAfterWrite;
+
+	@Value("${demo.persons.l2-cache.query.maximum-size:10000}")
+	private long queryMaximumSize;
+
+	@Value("${demo.persons.l2-cache.query.expire-after-write:10m}")
+	private Duration queryExpireAfterWrite;
+
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager() {
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager(URI.create("demo-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+		cacheManager.createCache(Person.CACHE_REGION, region(entityMaximumSize, entityExpireAfterWrite));
+		cacheManager.createCache(PersonRepository.BY_NIN_CACHE_REGION, region(queryMaximumSize, queryExpireAfterWrite));
+		cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queryMaximumSize, queryExpireAfterWrite));
+		// one entry per table, and a missing one would pass every cached query result of that table as current
+		cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(null, null));
+		return cacheManager;
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+		return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+	}
+
+	private static CaffeineConfiguration<Object, Object> region(Long maximumSize, Duration expireAfterWrite) {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		// Hibernate caches disassembled state, copying it on every put and get would only cost
+		configuration.setStoreByValue(false);
+		configuration.setMaximumSize(maximumSize == null ? OptionalLong.empty() : OptionalLong.of(maximumSize));
+		configuration.setExpireAfterWrite(expireAfterWrite == null ? OptionalLong.empty() : OptionalLong.of(expireAfterWrite.toNanos()));
+		return configuration;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.util.function.ToLongFunction;
+
+import javax.annotation.PostConstruct;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hit, miss and put counts and the size of every second-level cache region. The Hibernate metrics of Micrometer only
+ * have the totals of all regions.
+ */
+@Component
+@ConditionalOnProperty(name = "demo.persons.l2-cache.enabled", havingValue = "true")
+public class SecondLevelCacheMetrics {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private CacheManager hibernateCacheManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@PostConstruct
+	public void init() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		for (String region : statistics.getSecondLevelCacheRegionNames()) {
+			counter("hibernate.cache.region.requests", "The lookups of the region", region, statistics, "result", "hit", CacheRegionStatistics::getHitCount);
+			counter("hibernate.cache.region.requests", "The lookups of the region", region, statistics, "result", "miss", CacheRegionStatistics::getMissCount);
+			counter("hibernate.cache.region.puts", "The entries put in the region", region, statistics, null, null, CacheRegionStatistics::getPutCount);
+			Cache<?, ?> cache = hibernateCacheManager.getCache(region);
+			if (cache != null) {
+				com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+				Gauge.builder("hibernate.cache.region.size", nativeCache, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+						.description("The approximate number of entries in the region").tag("region", region).register(meterRegistry);
+			}
+		}
+	}
+
+	private void counter(String name, String description, String region, Statistics statistics, String tag, String value,
+			ToLongFunction<CacheRegionStatistics> count) {
+		FunctionCounter.Builder<Statistics> builder = FunctionCounter.builder(name, statistics, s -> {
+			CacheRegionStatistics regionStatistics = s.getCacheRegionStatistics(region);
+			return regionStatistics == null ? 0 : count.applyAsLong(regionStatistics);
+		}).description(description).tag("region", region);
+		if (tag != null) {
+			builder.tag(tag, value);
+		}
+		builder.register(meterRegistry);
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Logs a sample of the statements that take longer than a threshold, with the service method they were issued from.
+ * Statements under the threshold only cost a comparison.
+ */
+public class SlowQueryListener implements QueryExecutionListener {
+
+	public static final String LOGGER = "com.github.elgleidson.demo.test.slowquery";
+
+	private static final Logger log = LoggerFactory.getLogger(LOGGER);
+
+	private static final String SERVICE_PACKAGE = "com.github.elgleidson.demo.test.service.";
+
+	private final long thresholdMillis;
+
+	private final double sampleRate;
+
+	public SlowQueryListener(long thresholdMillis, double sampleRate) {
+		this.thresholdMillis = thresholdMillis;
+		this.sampleRate = sampleRate;
+	}
+
+	@Override
+	public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+	}
+
+	@Override
+	public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		long elapsed = execInfo.getElapsedTime();
+		if (elapsed < thresholdMillis || !log.isWarnEnabled()) {
+			return;
+		}
+		if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return;
+		}
+
+		int binds = queryInfoList.stream().flatMap(query -> query.getParametersList().stream()).mapToInt(List::size).sum();
+		String statement = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+		log.warn("Slow query took {} ms with {} bind parameters (batch size {}) from {}: {}", elapsed, binds, execInfo.getBatchSize(),
+				caller().orElse("unknown"), statement);
+	}
+
+	private static Optional<String> caller() {
+		// only walked for statements that are going to be logged
+		return StackWalker.getInstance().walk(frames -> frames
+				.filter(frame -> frame.getClassName().startsWith(SERVICE_PACKAGE) && !frame.getClassName().contains("$$"))
+				.map(frame -> frame.getClassName().substring(SERVICE_PACKAGE.length()) + "." + frame.getMethodName())
+				.findFirst());
+	}
+
+}
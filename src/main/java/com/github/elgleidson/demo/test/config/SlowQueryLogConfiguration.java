@@ -0,0 +1,34 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+@Configuration
+@ConditionalOnProperty(name = "demo.slow-query-log.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryLogConfiguration {
+
+	@Bean
+	public static BeanPostProcessor slowQueryDataSourcePostProcessor(@Value("${demo.slow-query-log.threshold:100ms}") Duration threshold,
+			@Value("${demo.slow-query-log.sample-rate:1.0}") double sampleRate) {
+		SlowQueryListener listener = new SlowQueryListener(threshold.toMillis(), sampleRate);
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource) {
+					return ProxyDataSourceBuilder.create((DataSource) bean).name(beanName).listener(listener).build();
+				}
+				return bean;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.github.elgleidson.demo.test.config;
+
+import java.util.Set;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Switches of the faststart profile. The post processors run before placeholders are resolved, so they bind their
+ * settings from the environment.
+ */
+@Configuration
+public class StartupConfiguration {
+
+	@Bean
+	@ConditionalOnProperty(name = "demo.startup.lazy-init", havingValue = "true")
+	public static LazyInitializationPostProcessor lazyInitializationPostProcessor(Environment environment) {
+		Set<String> eagerBeans = Binder.get(environment).bind("demo.startup.eager-beans", Bindable.setOf(String.class)).orElse(Set.of());
+		return new LazyInitializationPostProcessor(eagerBeans);
+	}
+
+	@Bean
+	@ConditionalOnClass(SpringLiquibase.class)
+	@ConditionalOnProperty(name = "demo.startup.liquibase-fingerprint", havingValue = "true")
+	public static LiquibaseFingerprintPostProcessor liquibaseFingerprintPostProcessor(Environment environment) {
+		LiquibaseProperties properties = Binder.get(environment).bind("spring.liquibase", LiquibaseProperties.class).orElseGet(LiquibaseProperties::new);
+		return new LiquibaseFingerprintPostProcessor(properties);
+	}
+
+	/**
+	 * Closes the application once it is ready, for training runs that record the classes loaded during startup.
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "demo.startup.exit-on-ready", havingValue = "true")
+	public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+		return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+	}
+
+}
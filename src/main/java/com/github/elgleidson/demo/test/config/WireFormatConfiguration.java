@@ -0,0 +1,39 @@
+package com.github.elgleidson.demo.test.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Binary alternatives to JSON, picked through {@code Accept} and {@code Content-Type}. They are configured by the same
+ * builder as the JSON mapper so they share its settings, and they replace Spring's defaults in place, after JSON, which
+ * stays the format for clients that accept anything.
+ */
+@Configuration
+public class WireFormatConfiguration {
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(objectMapper(builder, new SmileFactory()));
+	}
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(objectMapper(builder, new CBORFactory()));
+	}
+
+	private static ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+		// builder.factory() would stick to the builder, and so to every mapper built from it afterwards, JSON's included
+		ObjectMapper mapper = new ObjectMapper(factory);
+		builder.configure(mapper);
+		return mapper;
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.github.elgleidson.demo.test.domain;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+
+/**
+ * Two letters, six digits and a letter, like {@code ^[A-Z]{2}[0-9]{6}[A-Z]$} but checked without the regex engine.
+ * {@code null} is valid.
+ */
+@Documented
+@Constraint(validatedBy = NinValidator.class)
+@Target({ FIELD, METHOD, PARAMETER })
+@Retention(RUNTIME)
+public @interface Nin {
+
+	String message() default "NIN must have 2 letters + 6 numbers + 1 letter";
+
+	Class<?>[] groups() default {};
+
+	Class<? extends Payload>[] payload() default {};
+
+}
@@ -0,0 +1,33 @@
+package com.github.elgleidson.demo.test.domain;
+
+import static com.github.elgleidson.demo.test.domain.PhoneValidator.isDigit;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class NinValidator implements ConstraintValidator<Nin, CharSequence> {
+
+	static final int LENGTH = 9;
+
+	@Override
+	public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+		return value == null || isNin(value);
+	}
+
+	static boolean isNin(CharSequence value) {
+		if (value.length() != LENGTH || !isLetter(value.charAt(0)) || !isLetter(value.charAt(1)) || !isLetter(value.charAt(8))) {
+			return false;
+		}
+		for (int i = 2; i < 8; i++) {
+			if (!isDigit(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static boolean isLetter(char c) {
+		return c >= 'A' && c <= 'Z';
+	}
+
+}
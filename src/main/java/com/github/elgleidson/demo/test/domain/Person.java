@@ -2,24 +2,34 @@ package com.github.elgleidson.demo.test.domain;
 
 import java.time.LocalDate;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.Pattern;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.validator.constraints.Length;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Person.CACHE_REGION)
 public class Person {
 	
+	public static final String CACHE_REGION = "person";
+	
 	@Id
 	@GeneratedValue(strategy=GenerationType.SEQUENCE, generator="sq_person")
-	@SequenceGenerator(name="sq_person", sequenceName="sq_person", allocationSize=1)
+	@GenericGenerator(name="sq_person", strategy="com.github.elgleidson.demo.test.domain.PersonIdGenerator", parameters=@Parameter(name="sequence_name", value="sq_person"))
 	private Long id;
 	
 	@Column
@@ -32,17 +42,31 @@ public class Person {
 	private LocalDate birthday;
 	
 	@Column
-	@Pattern(regexp = "^[0-9]{10}$", message = "Phone must have 10 numbers")
+	@Phone(message = "Phone must have 10 numbers")
 	private String phone;
 	
 	@Column
-	@Pattern(regexp = "^[A-Z]{2}[0-9]{6}[A-Z]$", message = "NIN must have 2 letters + 6 numbers + 1 letter")
+	@Nin(message = "NIN must have 2 letters + 6 numbers + 1 letter")
 	private String nin;
 	
+	@Version
+	@Column
+	@JsonIgnore
+	private Long version;
+	
 	public Long getId() {
 		return id;
 	}
 
+	public void setId(Long id) {
+		this.id = id;
+	}
+	
+	public Person id(Long id) {
+		setId(id);
+		return this;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -95,4 +119,21 @@ public class Person {
 		return this;
 	}
 	
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	
+	public Person version(Long version) {
+		setVersion(version);
+		return this;
+	}
+	
+	public Person copy() {
+		return new Person().id(id).name(name).birthday(birthday).phone(phone).nin(nin).version(version);
+	}
+	
 }
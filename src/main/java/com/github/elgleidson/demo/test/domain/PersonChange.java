@@ -0,0 +1,44 @@
+package com.github.elgleidson.demo.test.domain;
+
+/**
+ * The latest change of a person as of {@code seq}: its current state after an insert or an update, only its id after a
+ * delete. Mirrors apply inserts and updates alike, as the state they carry.
+ */
+public class PersonChange {
+
+	public enum Operation {
+		INSERT, UPDATE, DELETE
+	}
+
+	private final long seq;
+
+	private final Operation operation;
+
+	private final Long id;
+
+	private final PersonView person;
+
+	public PersonChange(long seq, Operation operation, Long id, PersonView person) {
+		this.seq = seq;
+		this.operation = operation;
+		this.id = id;
+		this.person = person;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public PersonView getPerson() {
+		return person;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.github.elgleidson.demo.test.domain;
+
+/**
+ * Cheap validator for the whole person collection. Every insert, update and delete takes the next number of the
+ * person change log before it commits, so the last one handed out changes whenever the collection does; the row count
+ * is along for the exports that report their progress.
+ */
+public class PersonCollectionVersion {
+
+	private final long count;
+
+	private final long changeSeq;
+
+	public PersonCollectionVersion(long count, long changeSeq) {
+		this.count = count;
+		this.changeSeq = changeSeq;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getChangeSeq() {
+		return changeSeq;
+	}
+
+	@Override
+	public String toString() {
+		return count + "-" + changeSeq;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.github.elgleidson.demo.test.domain;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence generator for {@link Person} whose optimizer and block size come from the Hibernate settings, so they can
+ * follow the increment that Liquibase gives to {@code sq_person}.
+ */
+public class PersonIdGenerator extends SequenceStyleGenerator {
+
+	public static final String OPTIMIZER_SETTING = "demo.persons.id.optimizer";
+	public static final String BLOCK_SIZE_SETTING = "demo.persons.id.block-size";
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+		ConfigurationService configuration = serviceRegistry.getService(ConfigurationService.class);
+		String optimizer = configuration.getSetting(OPTIMIZER_SETTING, StandardConverters.STRING, "pooled-lo");
+		String blockSize = configuration.getSetting(BLOCK_SIZE_SETTING, StandardConverters.STRING, "1");
+
+		// "pooled" is left out on purpose: it treats the sequence value as the upper bound of a block and would
+		// hand out ids already used while sq_person was incremented by 1
+		if (!"pooled-lo".equals(optimizer) && !"none".equals(optimizer)) {
+			throw new MappingException("Unsupported optimizer for " + OPTIMIZER_SETTING + ": " + optimizer);
+		}
+
+		params.setProperty(OPT_PARAM, optimizer);
+		params.setProperty(INCREMENT_PARAM, blockSize);
+		super.configure(type, params, serviceRegistry);
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.github.elgleidson.demo.test.domain;
+
+/**
+ * Closed projection of {@link Person}: only its columns are selected and no entity is created.
+ */
+public interface PersonSummary {
+
+	Long getId();
+
+	String getName();
+
+}
@@ -0,0 +1,49 @@
+package com.github.elgleidson.demo.test.domain;
+
+import java.time.LocalDate;
+
+/**
+ * A {@link Person} row as a plain value, built by the query itself. It serializes like {@link Person} but is never
+ * managed, so it costs neither a persistence context entry nor a dirty checking snapshot.
+ */
+public class PersonView {
+
+	private final Long id;
+
+	private final String name;
+
+	private final LocalDate birthday;
+
+	private final String phone;
+
+	private final String nin;
+
+	public PersonView(Long id, String name, LocalDate birthday, String phone, String nin) {
+		this.id = id;
+		this.name = name;
+		this.birthday = birthday;
+		this.phone = phone;
+		this.nin = nin;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LocalDate getBirthday() {
+		return birthday;
+	}
+
+	public String getPhone() {
+		return phone;
+	}
+
+	public String getNin() {
+		return nin;
+	}
+
+}
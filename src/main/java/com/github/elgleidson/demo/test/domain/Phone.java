@@ -0,0 +1,30 @@
+package com.github.elgleidson.demo.test.domain;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+
+/**
+ * Exactly 10 digits, like {@code ^[0-9]{10}$} but checked without the regex engine. {@code null} is valid.
+ */
+@Documented
+@Constraint(validatedBy = PhoneValidator.class)
+@Target({ FIELD, METHOD, PARAMETER })
+@Retention(RUNTIME)
+public @interface Phone {
+
+	String message() default "Phone must have 10 numbers";
+
+	Class<?>[] groups() default {};
+
+	Class<? extends Payload>[] payload() default {};
+
+}
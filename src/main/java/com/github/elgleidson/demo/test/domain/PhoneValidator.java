@@ -0,0 +1,32 @@
+package com.github.elgleidson.demo.test.domain;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class PhoneValidator implements ConstraintValidator<Phone, CharSequence> {
+
+	static final int LENGTH = 10;
+
+	@Override
+	public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+		return value == null || isPhone(value);
+	}
+
+	static boolean isPhone(CharSequence value) {
+		if (value.length() != LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < LENGTH; i++) {
+			if (!isDigit(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// ASCII only, unlike Character.isDigit and like [0-9]
+	static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+}
@@ -1,15 +1,76 @@
 package com.github.elgleidson.demo.test.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
 
 @Repository
-public interface PersonRepository extends JpaRepository<Person, Long>{
+public interface PersonRepository extends JpaRepository<Person, Long>, PersonRepositoryCustom {
 
+	String BY_NIN_CACHE_REGION = "person-by-nin";
+
+	// the query cache keeps the id per NIN, the person itself comes from the entity region
+	@QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = BY_NIN_CACHE_REGION) })
 	Optional<Person> findByNin(String nin);
-	
+
+	// lookups of many at once, callers keep the lists short enough for one statement each
+	List<Person> findByIdIn(Collection<Long> ids);
+
+	List<Person> findByNinIn(Collection<String> nins);
+
+	List<Person> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select p from Person p order by p.id")
+	Stream<Person> streamAll();
+
+	// projections: rows go straight into DTOs, the persistence context is never involved and there is nothing to flush
+
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL") })
+	@Query("select new com.github.elgleidson.demo.test.domain.PersonView(p.id, p.name, p.birthday, p.phone, p.nin) from Person p order by p.id")
+	List<PersonView> findAllViews();
+
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL") })
+	@Query("select new com.github.elgleidson.demo.test.domain.PersonView(p.id, p.name, p.birthday, p.phone, p.nin) from Person p "
+			+ "where p.id > :after order by p.id")
+	List<PersonView> findViewsAfter(@Param("after") Long after, Pageable pageable);
+
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL") })
+	@Query("select p.id as id, p.name as name from Person p where p.id > :after order by p.id")
+	List<PersonSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+	@Modifying
+	@Query("update Person p set p.name = :#{#person.name}, p.birthday = :#{#person.birthday}, p.phone = :#{#person.phone}, p.nin = :#{#person.nin}, "
+			+ "p.version = p.version + 1 where p.id = :id")
+	int update(@Param("id") Long id, @Param("person") Person person);
+
+	@Modifying
+	@Query("update Person p set p.name = :#{#person.name}, p.birthday = :#{#person.birthday}, p.phone = :#{#person.phone}, p.nin = :#{#person.nin}, "
+			+ "p.version = p.version + 1 where p.id = :id and p.version = :version")
+	int updateIfVersion(@Param("id") Long id, @Param("version") Long version, @Param("person") Person person);
+
+	@Query("select p.version from Person p where p.id = :id")
+	Optional<Long> findVersionById(@Param("id") Long id);
+
 }
@@ -0,0 +1,18 @@
+package com.github.elgleidson.demo.test.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+public interface PersonRepositoryCustom {
+
+	/**
+	 * Like {@code JpaSpecificationExecutor.findAll(Specification, Pageable)} but without the count query, which keyset
+	 * paging has no use for.
+	 */
+	List<Person> search(Specification<Person> specification, Sort sort, int limit);
+
+}
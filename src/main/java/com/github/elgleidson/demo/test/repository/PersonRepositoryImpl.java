@@ -0,0 +1,40 @@
+package com.github.elgleidson.demo.test.repository;
+
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+class PersonRepositoryImpl implements PersonRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Person> search(Specification<Person> specification, Sort sort, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Person> query = cb.createQuery(Person.class);
+		Root<Person> root = query.from(Person.class);
+		if (specification != null) {
+			query.where(specification.toPredicate(root, query, cb));
+		}
+		query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+		return entityManager.createQuery(query)
+				.setMaxResults(limit)
+				.setHint(HINT_READONLY, true)
+				.getResultList();
+	}
+
+}
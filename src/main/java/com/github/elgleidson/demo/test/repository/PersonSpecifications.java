@@ -0,0 +1,66 @@
+package com.github.elgleidson.demo.test.repository;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import javax.persistence.criteria.Expression;
+
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+/**
+ * Search filters over {@link Person}. Every one of them matches a leading index column, see changelog-0.0.3.
+ */
+public final class PersonSpecifications {
+
+	private static final char ESCAPE = '\\';
+
+	private PersonSpecifications() {
+	}
+
+	public static Specification<Person> nameStartsWith(String prefix) {
+		String pattern = prefix.toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+		return (root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern, ESCAPE);
+	}
+
+	public static Specification<Person> bornOnOrAfter(LocalDate from) {
+		return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("birthday"), from);
+	}
+
+	public static Specification<Person> bornOnOrBefore(LocalDate to) {
+		return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("birthday"), to);
+	}
+
+	public static Specification<Person> phone(String phone) {
+		return (root, query, cb) -> cb.equal(root.get("phone"), phone);
+	}
+
+	/**
+	 * Keyset condition for the rows after ({@code value}, {@code id}) in the order of {@code property} then id, both in
+	 * {@code direction}. A {@code null} property means the order is by id alone. Case-insensitive properties compare
+	 * their lower case, as the order does.
+	 */
+	public static <T extends Comparable<? super T>> Specification<Person> after(String property, boolean ignoreCase, Direction direction,
+			T value, Long id) {
+		return (root, query, cb) -> {
+			Expression<Long> idPath = root.get("id");
+			if (property == null) {
+				return direction.isAscending() ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+			}
+
+			Expression<T> key = root.get(property);
+			if (ignoreCase) {
+				@SuppressWarnings("unchecked")
+				Expression<T> lower = (Expression<T>) cb.lower(root.get(property));
+				key = lower;
+			}
+			if (direction.isAscending()) {
+				return cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(idPath, id)));
+			}
+			return cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(idPath, id)));
+		};
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Channel through the shared database: the changed ids are inserted into {@code person_cache_invalidation} in the
+ * transaction of the change, so they are sent exactly when it commits, and every instance polls the rows the others
+ * inserted every {@code poll-interval}.
+ * <p>
+ * A row is dated by the start of its transaction but only seen once that commits, so each poll looks {@code commit-slack}
+ * further back than the previous one and skips the rows it already had; a writing transaction longer than that may go
+ * unseen, which leaves its persons to the cache expiry. Rows older than {@code retention} are deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "demo.persons.l2-cache.invalidation.channel", havingValue = "jdbc")
+public class JdbcPersonInvalidationChannel implements PersonInvalidationChannel, SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(JdbcPersonInvalidationChannel.class);
+
+	private static final String INSERT = "insert into person_cache_invalidation (origin, person_id, created_at) values (?, ?, localtimestamp)";
+
+	private static final String SELECT = "select id, person_id from person_cache_invalidation where created_at > ? and origin <> ?";
+
+	private static final String DELETE = "delete from person_cache_invalidation where created_at < ?";
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${demo.persons.l2-cache.invalidation.poll-interval:1s}")
+	private Duration pollInterval;
+
+	@Value("${demo.persons.l2-cache.invalidation.commit-slack:10s}")
+	private Duration commitSlack;
+
+	@Value("${demo.persons.l2-cache.invalidation.retention:1h}")
+	private Duration retention;
+
+	private final String origin = UUID.randomUUID().toString();
+
+	private JdbcTemplate jdbcTemplate;
+
+	private volatile Consumer<Collection<Long>> receiver;
+
+	private ScheduledExecutorService poller;
+
+	// database time of the previous poll and the rows it returned
+	private Timestamp polledAt;
+
+	private Set<Long> polled = Collections.emptySet();
+
+	private Timestamp cleanedAt;
+
+	@PostConstruct
+	public void init() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@Override
+	public void publish(Collection<Long> ids) {
+		List<Object[]> rows = new ArrayList<>();
+		if (ids.isEmpty()) {
+			rows.add(new Object[] { origin, null });
+		}
+		for (Long id : ids) {
+			rows.add(new Object[] { origin, id });
+		}
+		jdbcTemplate.batchUpdate(INSERT, rows);
+	}
+
+	@Override
+	public void subscribe(Consumer<Collection<Long>> receiver) {
+		this.receiver = receiver;
+	}
+
+	void poll() {
+		Timestamp now = jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class);
+		Set<Long> rows = new HashSet<>();
+		List<Long> ids = new ArrayList<>();
+		boolean received = false;
+		for (Object[] row : jdbcTemplate.query(SELECT, (rs, i) -> new Object[] { rs.getLong(1), rs.getObject(2, Long.class) },
+				new Timestamp(polledAt.getTime() - commitSlack.toMillis()), origin)) {
+			Long rowId = (Long) row[0];
+			rows.add(rowId);
+			if (!polled.contains(rowId)) {
+				received = true;
+				if (row[1] != null) {
+					ids.add((Long) row[1]);
+				}
+			}
+		}
+		polledAt = now;
+		polled = rows;
+		Consumer<Collection<Long>> current = receiver;
+		if (received && current != null) {
+			current.accept(ids);
+		}
+
+		if (now.getTime() - cleanedAt.getTime() > retention.toMillis() / 10) {
+			jdbcTemplate.update(DELETE, new Timestamp(now.getTime() - retention.toMillis()));
+			cleanedAt = now;
+		}
+	}
+
+	@Override
+	public void start() {
+		polledAt = jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class);
+		cleanedAt = new Timestamp(0);
+		poller = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "person-cache-invalidation"));
+		poller.scheduleWithFixedDelay(() -> {
+			try {
+				poll();
+			} catch (RuntimeException e) {
+				log.warn("Polling person cache invalidations failed: {}", e.toString());
+			}
+		}, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop() {
+		poller.shutdownNow();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return poller != null && !poller.isShutdown();
+	}
+
+}
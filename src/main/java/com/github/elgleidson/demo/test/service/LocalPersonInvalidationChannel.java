@@ -0,0 +1,69 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Stand-in for a real channel that only reaches the application contexts of this JVM: each context is an instance, so
+ * two contexts on one database show what a channel between machines has to do. With a single context it sends to
+ * nobody.
+ */
+@Component
+@ConditionalOnProperty(name = "demo.persons.l2-cache.invalidation.channel", havingValue = "local", matchIfMissing = true)
+public class LocalPersonInvalidationChannel implements PersonInvalidationChannel {
+
+	private static final List<LocalPersonInvalidationChannel> CHANNELS = new CopyOnWriteArrayList<>();
+
+	private volatile Consumer<Collection<Long>> receiver;
+
+	@PostConstruct
+	public void init() {
+		CHANNELS.add(this);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		CHANNELS.remove(this);
+	}
+
+	@Override
+	public void publish(Collection<Long> ids) {
+		List<Long> sent = new ArrayList<>(ids);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			send(sent);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				send(sent);
+			}
+		});
+	}
+
+	@Override
+	public void subscribe(Consumer<Collection<Long>> receiver) {
+		this.receiver = receiver;
+	}
+
+	private void send(List<Long> ids) {
+		for (LocalPersonInvalidationChannel channel : CHANNELS) {
+			Consumer<Collection<Long>> other = channel.receiver;
+			if (channel != this && other != null) {
+				other.accept(ids);
+			}
+		}
+	}
+
+}
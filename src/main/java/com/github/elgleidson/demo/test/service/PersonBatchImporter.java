@@ -0,0 +1,146 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.validator.HibernateValidatorFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+/**
+ * Creates persons in chunks, one transaction per chunk. When a chunk is rejected by the database its entries are
+ * retried one by one, so every entry ends up with its own result. Input that cannot be read stops the import with the
+ * exception of the reader, after the entries before it have been created and reported.
+ */
+@Service
+public class PersonBatchImporter {
+
+	static final String ID_NOT_ALLOWED = "Id must not be set";
+	static final String DUPLICATE_NIN = "NIN already registered";
+	static final String REJECTED = "Rejected by the database";
+
+	private static final String NIN_INDEX = "ux_person_nin";
+
+	@Autowired
+	private PersonService service;
+
+	@Autowired
+	private ValidatorFactory validatorFactory;
+
+	@Value("${demo.persons.batch.chunk-size:500}")
+	private int chunkSize;
+
+	@Value("${demo.persons.batch.fail-fast:false}")
+	private boolean failFast;
+
+	private Validator validator;
+
+	@PostConstruct
+	public void init() {
+		// same factory as @Valid, so both share the constraint metadata of Person, built here instead of on the first entry
+		validator = failFast ? validatorFactory.unwrap(HibernateValidatorFactory.class).usingContext().failFast(true).getValidator()
+				: validatorFactory.getValidator();
+		validator.getConstraintsForClass(Person.class);
+	}
+
+	public void importAll(Iterator<Person> persons, Consumer<PersonBatchResult> results) {
+		List<Person> chunk = new ArrayList<>(chunkSize);
+		List<Integer> indexes = new ArrayList<>(chunkSize);
+		int index = 0;
+		while (true) {
+			Person person;
+			try {
+				if (!persons.hasNext()) {
+					break;
+				}
+				person = persons.next();
+			} catch (RuntimeException e) {
+				if (!chunk.isEmpty()) {
+					createChunk(chunk, indexes, results);
+				}
+				throw e;
+			}
+			List<String> errors = validate(person);
+			if (errors.isEmpty()) {
+				chunk.add(person);
+				indexes.add(index);
+			} else {
+				results.accept(PersonBatchResult.failed(index, errors));
+			}
+			index++;
+
+			if (chunk.size() == chunkSize) {
+				createChunk(chunk, indexes, results);
+				chunk.clear();
+				indexes.clear();
+			}
+		}
+
+		if (!chunk.isEmpty()) {
+			createChunk(chunk, indexes, results);
+		}
+	}
+
+	private List<String> validate(Person person) {
+		if (person.getId() != null) {
+			return Collections.singletonList(ID_NOT_ALLOWED);
+		}
+		Set<ConstraintViolation<Person>> violations = validator.validate(person);
+		return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.toList());
+	}
+
+	private void createChunk(List<Person> chunk, List<Integer> indexes, Consumer<PersonBatchResult> results) {
+		// work on copies: a rolled back chunk leaves generated ids behind on the instances it tried to persist
+		List<Person> copies = chunk.stream().map(Person::copy).collect(Collectors.toList());
+		List<Person> created;
+		try {
+			created = service.createAll(copies);
+		} catch (DataIntegrityViolationException e) {
+			createOneByOne(chunk, indexes, results);
+			return;
+		}
+
+		for (int i = 0; i < created.size(); i++) {
+			results.accept(PersonBatchResult.created(indexes.get(i), created.get(i).getId()));
+		}
+	}
+
+	private void createOneByOne(List<Person> chunk, List<Integer> indexes, Consumer<PersonBatchResult> results) {
+		for (int i = 0; i < chunk.size(); i++) {
+			try {
+				Person created = service.save(chunk.get(i).copy());
+				results.accept(PersonBatchResult.created(indexes.get(i), created.getId()));
+			} catch (DataIntegrityViolationException e) {
+				results.accept(PersonBatchResult.failed(indexes.get(i), Collections.singletonList(isDuplicateNin(e) ? DUPLICATE_NIN : REJECTED)));
+			}
+		}
+	}
+
+	private static boolean isDuplicateNin(DataIntegrityViolationException e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConstraintViolationException) {
+				String constraint = ((ConstraintViolationException) cause).getConstraintName();
+				return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(NIN_INDEX);
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PersonBatchResult {
+
+	public enum Status {
+		CREATED, FAILED
+	}
+
+	private final int index;
+
+	private final Status status;
+
+	private final Long id;
+
+	private final List<String> errors;
+
+	private PersonBatchResult(int index, Status status, Long id, List<String> errors) {
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.errors = errors;
+	}
+
+	public static PersonBatchResult created(int index, Long id) {
+		return new PersonBatchResult(index, Status.CREATED, id, Collections.emptyList());
+	}
+
+	public static PersonBatchResult failed(int index, List<String> errors) {
+		return new PersonBatchResult(index, Status.FAILED, null, errors);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.elgleidson.demo.test.domain.Person;
+
+/**
+ * Keeps copies of persons by id and the id of each cached NIN. A NIN entry only points at an id, so a person whose NIN
+ * changed is detected on read instead of having to know the old NIN when the person is saved.
+ * <p>
+ * A reader takes a {@link #stamp()} before it queries and hands it to {@link #put(Person, long)}, which drops the row
+ * when the person was evicted meanwhile: a reader outside of a transaction may have read it just before a change
+ * committed. Evictions are recorded in {@code STRIPES} slots by id, so another person's change may drop a put too.
+ */
+@Component
+public class PersonCache {
+
+	public static final String BY_ID = "persons";
+	public static final String BY_NIN = "personsByNin";
+
+	private static final int STRIPES = 1024;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private Cache byId;
+
+	private Cache byNin;
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	// the evictions count when a person of each stripe was last evicted
+	private final AtomicLongArray evictedAt = new AtomicLongArray(STRIPES);
+
+	@PostConstruct
+	public void init() {
+		byId = Objects.requireNonNull(cacheManager.getCache(BY_ID), BY_ID);
+		byNin = Objects.requireNonNull(cacheManager.getCache(BY_NIN), BY_NIN);
+	}
+
+	public Person get(Long id) {
+		Person cached = byId.get(id, Person.class);
+		return cached == null ? null : cached.copy();
+	}
+
+	public Long getIdByNin(String nin) {
+		return byNin.get(nin, Long.class);
+	}
+
+	/**
+	 * To be taken before reading persons from the database, for {@link #put(Person, long)}.
+	 */
+	public long stamp() {
+		return evictions.get();
+	}
+
+	/**
+	 * Whether the person may have been evicted since {@code stamp} was taken.
+	 */
+	public boolean evictedSince(Long id, long stamp) {
+		return evictedAt.get(stripe(id)) > stamp;
+	}
+
+	public void put(Person person, long stamp) {
+		if (evictedSince(person.getId(), stamp)) {
+			return;
+		}
+		byId.put(person.getId(), person.copy());
+		if (person.getNin() != null) {
+			byNin.put(person.getNin(), person.getId());
+		}
+		// an eviction between the check and the put has to win as well
+		if (evictedSince(person.getId(), stamp)) {
+			byId.evict(person.getId());
+		}
+	}
+
+	public void evict(Long id) {
+		markEvicted(id);
+		byId.evict(id);
+		// evict again once the transaction is over, a concurrent read may have cached the row before it committed
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					markEvicted(id);
+					byId.evict(id);
+				}
+			});
+		}
+	}
+
+	private void markEvicted(Long id) {
+		// before the entry is removed, so a put that misses the mark finds its entry removed after it
+		evictedAt.accumulateAndGet(stripe(id), evictions.incrementAndGet(), Math::max);
+	}
+
+	private static int stripe(Long id) {
+		return (Long.hashCode(id) & Integer.MAX_VALUE) % STRIPES;
+	}
+
+	public void evictNin(String nin) {
+		byNin.evict(nin);
+	}
+
+	public void clear() {
+		byId.clear();
+		byNin.clear();
+	}
+
+	public Map<String, CacheStats> stats() {
+		Map<String, CacheStats> stats = new LinkedHashMap<>();
+		stats.put(BY_ID, nativeCache(byId).stats());
+		stats.put(BY_NIN, nativeCache(byNin).stats());
+		return stats;
+	}
+
+	@SuppressWarnings("unchecked")
+	private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(Cache cache) {
+		return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+	}
+
+}
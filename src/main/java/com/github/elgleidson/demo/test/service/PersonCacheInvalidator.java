@@ -0,0 +1,75 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps the caches of the other instances in line with the changes of this one. Changes are sent over the
+ * {@link PersonInvalidationChannel}; the changes of the others evict the persons from the second-level cache and
+ * {@link PersonCache}, and drop all cached query results, whose tables were changed without this instance knowing.
+ */
+@Component
+public class PersonCacheInvalidator {
+
+	@Autowired
+	private PersonInvalidationChannel channel;
+
+	@Autowired
+	private PersonCache cache;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Counter sent;
+
+	private Counter received;
+
+	@PostConstruct
+	public void init() {
+		sent = Counter.builder("person.cache.invalidations").description("Person changes sent to the other instances").tag("direction", "sent")
+				.register(meterRegistry);
+		received = Counter.builder("person.cache.invalidations").description("Person changes received from the other instances")
+				.tag("direction", "received").register(meterRegistry);
+		channel.subscribe(this::evict);
+	}
+
+	/**
+	 * To be called in the transaction that changed or deleted the person.
+	 */
+	public void changed(Long id) {
+		channel.publish(Collections.singletonList(id));
+		sent.increment();
+	}
+
+	/**
+	 * To be called in the transaction that created persons.
+	 */
+	public void created() {
+		channel.publish(Collections.emptyList());
+		sent.increment();
+	}
+
+	void evict(Collection<Long> ids) {
+		for (Long id : ids) {
+			entityManagerFactory.getCache().evict(Person.class, id);
+			cache.evict(id);
+		}
+		entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictQueryRegions();
+		received.increment(Math.max(ids.size(), 1));
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.elgleidson.demo.test.domain.PersonChange;
+import com.github.elgleidson.demo.test.domain.PersonChange.Operation;
+import com.github.elgleidson.demo.test.domain.PersonView;
+
+/**
+ * Outbox of the person changes, for mirrors to follow instead of downloading every person again. A change is written
+ * by the transaction that made it, right before it commits, numbered under the lock of the one row of
+ * {@code person_change_sequence}: the numbers follow the commit order, so once {@code last_seq} is read every change up
+ * to it can be read too, and a token never skips a change that commits later.
+ * <p>
+ * The price is that writes commit one at a time across every instance: each waits for the row lock of the one before
+ * it to be released by its commit. Only the commit is serialized, not the statements before it, but a slow commit
+ * (a synchronous replica, a busy disk) holds up every writer behind it. {@code PersonChangeLogBenchmark} measures
+ * concurrent inserts with and without the change recorded. A database sequence would avoid the lock, but its numbers
+ * are taken in a different order than the commits, so readers would need a watermark below which no transaction is
+ * still in flight.
+ * <p>
+ * Reading returns only the latest change of each person, with the person as it is now. Changes older than
+ * {@code retention} are deleted, and tokens from before them refused.
+ */
+@Component
+public class PersonChangeLog implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(PersonChangeLog.class);
+
+	private static final String NEXT_SEQ = "update person_change_sequence set last_seq = last_seq + ?";
+
+	private static final String SEQUENCE = "select last_seq, pruned_seq from person_change_sequence";
+
+	private static final String INSERT = "insert into person_change (seq, person_id, operation, changed_at) values (?, ?, ?, localtimestamp)";
+
+	private static final String SELECT = "select c.seq, c.person_id, c.operation, p.id, p.name, p.birthday, p.phone, p.nin from person_change c "
+			+ "left join person p on p.id = c.person_id where c.seq > ? and c.seq <= ? "
+			+ "and not exists (select 1 from person_change n where n.person_id = c.person_id and n.seq > c.seq) order by c.seq";
+
+	private static final String PRUNABLE = "select max(seq) from person_change where changed_at < ?";
+
+	private static final String PRUNED = "update person_change_sequence set pruned_seq = ? where pruned_seq < ?";
+
+	private static final String DELETE = "delete from person_change where seq <= ?";
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${demo.persons.changes.retention:7d}")
+	private Duration retention;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private ScheduledExecutorService pruner;
+
+	@PostConstruct
+	public void init() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	/**
+	 * To be called in the transaction that made the changes.
+	 */
+	public void record(Operation operation, Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Person changes are recorded by the transaction that made them");
+		}
+		List<Long> changed = new ArrayList<>(ids);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				append(operation, changed);
+			}
+		});
+	}
+
+	private void append(Operation operation, List<Long> ids) {
+		// locks the sequence row until the commit, as late as possible so writers queue for the commit only
+		jdbcTemplate.update(NEXT_SEQ, ids.size());
+		long seq = sequence()[0] - ids.size();
+		List<Object[]> rows = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			rows.add(new Object[] { ++seq, id, operation.name() });
+		}
+		jdbcTemplate.batchUpdate(INSERT, rows);
+	}
+
+	private long[] sequence() {
+		return jdbcTemplate.queryForObject(SEQUENCE, (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2) });
+	}
+
+	/**
+	 * The token of the last change, to follow the changes from after downloading the persons.
+	 */
+	public long head() {
+		return sequence()[0];
+	}
+
+	/**
+	 * Whether the changes after {@code since} are all still there, for a token this log handed out.
+	 */
+	public boolean isAvailable(long since) {
+		long[] sequence = sequence();
+		return since >= sequence[1] && since <= sequence[0];
+	}
+
+	/**
+	 * At most {@code size} changes after {@code since}, or nothing when they are not all available anymore.
+	 */
+	@Transactional(readOnly = true)
+	public Optional<PersonChanges> changesSince(long since, int size) {
+		// the head first: every change up to it has committed, the ones after are left to the next read
+		long[] sequence = sequence();
+		if (since < sequence[1] || since > sequence[0]) {
+			return Optional.empty();
+		}
+
+		List<PersonChange> changes = jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(SELECT);
+			statement.setLong(1, since);
+			statement.setLong(2, sequence[0]);
+			statement.setMaxRows(size + 1);
+			return statement;
+		}, (rs, i) -> {
+			long id = rs.getLong(2);
+			Operation operation = Operation.valueOf(rs.getString(3));
+			// a row gone without its delete recorded yet reads as deleted
+			if (operation == Operation.DELETE || rs.getObject(4) == null) {
+				return new PersonChange(rs.getLong(1), Operation.DELETE, id, null);
+			}
+			Date birthday = rs.getDate(6);
+			return new PersonChange(rs.getLong(1), operation, id,
+					new PersonView(id, rs.getString(5), birthday == null ? null : birthday.toLocalDate(), rs.getString(7), rs.getString(8)));
+		});
+		boolean more = changes.size() > size;
+		if (more) {
+			changes = changes.subList(0, size);
+		}
+		long next = more ? changes.get(changes.size() - 1).getSeq() : sequence[0];
+		return Optional.of(new PersonChanges(changes, next, more));
+	}
+
+	void prune() {
+		Timestamp now = jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class);
+		Long pruned = jdbcTemplate.queryForObject(PRUNABLE, Long.class, new Timestamp(now.getTime() - retention.toMillis()));
+		if (pruned == null) {
+			return;
+		}
+		// refused before they are gone
+		jdbcTemplate.update(PRUNED, pruned, pruned);
+		int deleted = jdbcTemplate.update(DELETE, pruned);
+		log.debug("Deleted {} person changes up to {}", deleted, pruned);
+	}
+
+	@Override
+	public void start() {
+		long interval = Math.max(retention.toMillis() / 10, 1);
+		pruner = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "person-change-pruner"));
+		pruner.scheduleWithFixedDelay(() -> {
+			try {
+				prune();
+			} catch (RuntimeException e) {
+				log.warn("Deleting old person changes failed: {}", e.toString());
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop() {
+		pruner.shutdownNow();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return pruner != null && !pruner.isShutdown();
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.List;
+
+import com.github.elgleidson.demo.test.domain.PersonChange;
+
+/**
+ * A page of person changes in {@code seq} order, with the token to ask for the following ones. Without {@code more},
+ * {@code next} is the last change there was when the page was read, even if that one was not in it.
+ */
+public class PersonChanges {
+
+	private final List<PersonChange> changes;
+
+	private final long next;
+
+	private final boolean more;
+
+	public PersonChanges(List<PersonChange> changes, long next, boolean more) {
+		this.changes = changes;
+		this.next = next;
+		this.more = more;
+	}
+
+	public List<PersonChange> getChanges() {
+		return changes;
+	}
+
+	public long getNext() {
+		return next;
+	}
+
+	public boolean isMore() {
+		return more;
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+/**
+ * RFC 4180 CSV of persons: comma separated, fields with commas, quotes or line breaks quoted, quotes doubled. Empty
+ * fields are nulls. Reading requires a header row that names the columns, in any order, and skips the {@code id}
+ * column that exports write: an import creates new persons.
+ */
+final class PersonCsv {
+
+	static final String HEADER = "id,name,birthday,phone,nin";
+
+	static class MalformedCsvException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		MalformedCsvException(String message) {
+			super(message);
+		}
+
+	}
+
+	private PersonCsv() {
+	}
+
+	static void writeHeader(Writer writer) throws IOException {
+		writer.write(HEADER);
+		writer.write('\n');
+	}
+
+	static void writeRow(Writer writer, long id, String name, LocalDate birthday, String phone, String nin) throws IOException {
+		writer.write(Long.toString(id));
+		writer.write(',');
+		writeField(writer, name);
+		writer.write(',');
+		writeField(writer, birthday == null ? null : birthday.toString());
+		writer.write(',');
+		writeField(writer, phone);
+		writer.write(',');
+		writeField(writer, nin);
+		writer.write('\n');
+	}
+
+	private static void writeField(Writer writer, String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+
+	static Iterator<Person> read(InputStream in) {
+		return new PersonCsvIterator(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+	}
+
+	private static final class PersonCsvIterator implements Iterator<Person> {
+
+		private final BufferedReader reader;
+
+		private final int columns;
+
+		private final int name;
+
+		private final int birthday;
+
+		private final int phone;
+
+		private final int nin;
+
+		// records read so far, the header is the first
+		private long record;
+
+		private List<String> next;
+
+		PersonCsvIterator(BufferedReader reader) {
+			this.reader = reader;
+			List<String> header = readRecord();
+			if (header != null) {
+				// a byte order mark left by spreadsheet exports
+				header.set(0, header.get(0).replace("\uFEFF", ""));
+				header.replaceAll(column -> column.trim().toLowerCase(Locale.ROOT));
+			}
+			if (header == null || !header.contains("name")) {
+				throw new MalformedCsvException("The first row must name the columns, among " + HEADER);
+			}
+			columns = header.size();
+			name = header.indexOf("name");
+			birthday = header.indexOf("birthday");
+			phone = header.indexOf("phone");
+			nin = header.indexOf("nin");
+			next = readRecord();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Person next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			List<String> fields = next;
+			if (fields.size() != columns) {
+				throw new MalformedCsvException("Record " + record + " has " + fields.size() + " fields instead of " + columns);
+			}
+			Person person;
+			try {
+				String birthdayField = field(fields, birthday);
+				person = new Person().name(field(fields, name)).phone(field(fields, phone)).nin(field(fields, nin))
+						.birthday(birthdayField == null ? null : LocalDate.parse(birthdayField));
+			} catch (DateTimeParseException e) {
+				throw new MalformedCsvException("Record " + record + ": " + e.getMessage());
+			}
+			next = readRecord();
+			return person;
+		}
+
+		private static String field(List<String> fields, int index) {
+			if (index < 0) {
+				return null;
+			}
+			String value = fields.get(index);
+			return value.isEmpty() ? null : value;
+		}
+
+		private List<String> readRecord() {
+			try {
+				List<String> record;
+				do {
+					record = parseRecord();
+				} while (record != null && record.size() == 1 && record.get(0).isEmpty());
+				if (record != null) {
+					this.record++;
+				}
+				return record;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// one record, which may span lines inside quotes; null at the end of the input
+		private List<String> parseRecord() throws IOException {
+			List<String> fields = new ArrayList<>();
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			boolean read = false;
+			int c;
+			while ((c = reader.read()) != -1) {
+				read = true;
+				if (quoted) {
+					if (c != '"') {
+						field.append((char) c);
+						continue;
+					}
+					reader.mark(1);
+					if (reader.read() == '"') {
+						field.append('"');
+					} else {
+						reader.reset();
+						quoted = false;
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else if (c == '\n') {
+					break;
+				} else if (c != '\r') {
+					field.append((char) c);
+				}
+			}
+			if (quoted) {
+				throw new MalformedCsvException("Record " + (record + 1) + " ends inside a quoted field");
+			}
+			if (!read) {
+				return null;
+			}
+			fields.add(field.toString());
+			return fields;
+		}
+
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Format;
+
+/**
+ * Writes the person table straight from a JDBC cursor, without entities. Rows are fetched {@code fetch-size} at a time
+ * and written through a buffer of {@code buffer-size}, so a slow client holds the cursor back instead of rows piling
+ * up in memory. The read-only transaction keeps the cursor open on databases that only stream inside one.
+ */
+@Service
+public class PersonExporter {
+
+	private static final String SELECT = "select id, name, birthday, phone, nin from person order by id";
+
+	@FunctionalInterface
+	private interface RowWriter {
+
+		void write(ResultSet row) throws SQLException, IOException;
+
+	}
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${demo.persons.export.fetch-size:1000}")
+	private int fetchSize;
+
+	@Value("${demo.persons.export.buffer-size:64KB}")
+	private DataSize bufferSize;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@PostConstruct
+	public void init() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.setFetchSize(fetchSize);
+	}
+
+	@Transactional(readOnly = true)
+	public void export(PersonTransfer transfer, OutputStream out) throws IOException {
+		OutputStream buffered = new BufferedOutputStream(out, (int) bufferSize.toBytes());
+		if (transfer.getFormat() == Format.CSV) {
+			exportCsv(transfer, buffered);
+		} else {
+			exportNdjson(transfer, buffered);
+		}
+		buffered.flush();
+	}
+
+	private void exportCsv(PersonTransfer transfer, OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		PersonCsv.writeHeader(writer);
+		query(transfer, row -> PersonCsv.writeRow(writer, row.getLong(1), row.getString(2), row.getObject(3, LocalDate.class), row.getString(4),
+				row.getString(5)));
+		writer.flush();
+	}
+
+	private void exportNdjson(PersonTransfer transfer, OutputStream out) throws IOException {
+		// same fields and format as the JSON of Person, written without building one
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.setRootValueSeparator(null);
+		query(transfer, row -> {
+			LocalDate birthday = row.getObject(3, LocalDate.class);
+			generator.writeStartObject();
+			generator.writeNumberField("id", row.getLong(1));
+			generator.writeStringField("name", row.getString(2));
+			generator.writeStringField("birthday", birthday == null ? null : birthday.toString());
+			generator.writeStringField("phone", row.getString(4));
+			generator.writeStringField("nin", row.getString(5));
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		});
+		generator.flush();
+	}
+
+	private void query(PersonTransfer transfer, RowWriter writer) throws IOException {
+		try {
+			jdbcTemplate.query(SELECT, row -> {
+				try {
+					writer.write(row);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				transfer.advance();
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+}
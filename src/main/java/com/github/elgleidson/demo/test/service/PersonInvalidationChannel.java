@@ -0,0 +1,24 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Tells the other instances sharing the database which persons changed, so they drop the copies they cached. Selected
+ * by {@code demo.persons.l2-cache.invalidation.channel}.
+ */
+public interface PersonInvalidationChannel {
+
+	/**
+	 * Sends the ids of changed persons to the other instances once the current transaction commits, nothing is sent
+	 * when it rolls back. No ids means persons were only created, which leaves cached persons current but not cached
+	 * query results.
+	 */
+	void publish(Collection<Long> ids);
+
+	/**
+	 * Sets what receives the ids the other instances sent. This instance never receives its own.
+	 */
+	void subscribe(Consumer<Collection<Long>> receiver);
+
+}
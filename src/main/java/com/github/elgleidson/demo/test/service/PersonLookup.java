@@ -0,0 +1,45 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ids and NINs to resolve at once, either list may be left out.
+ */
+public class PersonLookup {
+
+	private List<Long> ids = new ArrayList<>();
+
+	private List<String> nins = new ArrayList<>();
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids == null ? new ArrayList<>() : ids;
+	}
+
+	public PersonLookup ids(List<Long> ids) {
+		setIds(ids);
+		return this;
+	}
+
+	public List<String> getNins() {
+		return nins;
+	}
+
+	public void setNins(List<String> nins) {
+		this.nins = nins == null ? new ArrayList<>() : nins;
+	}
+
+	public PersonLookup nins(List<String> nins) {
+		setNins(nins);
+		return this;
+	}
+
+	public int size() {
+		return ids.size() + nins.size();
+	}
+
+}
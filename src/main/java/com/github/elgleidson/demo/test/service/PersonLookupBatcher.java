@@ -0,0 +1,168 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Dataloader-style batching of single lookups: the ids, or NINs, asked for within {@code max-delay} of the first one
+ * are loaded with one IN query, {@code max-batch} at most, and each caller waits for its own entry at most
+ * {@code timeout}. Used by {@link PersonService} for the lookups that miss its cache.
+ */
+@Component
+@ConditionalOnProperty(name = "demo.persons.lookup.batcher.enabled", havingValue = "true")
+public class PersonLookupBatcher {
+
+	@Autowired
+	private PersonRepository repository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${demo.persons.lookup.batcher.max-delay:2ms}")
+	private Duration maxDelay;
+
+	@Value("${demo.persons.lookup.batcher.max-batch:100}")
+	private int maxBatch;
+
+	@Value("${demo.persons.lookup.batcher.threads:4}")
+	private int threads;
+
+	@Value("${demo.persons.lookup.batcher.timeout:5s}")
+	private Duration timeout;
+
+	private ScheduledExecutorService executor;
+
+	private Batcher<Long> byId;
+
+	private Batcher<String> byNin;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger count = new AtomicInteger();
+		executor = Executors.newScheduledThreadPool(threads, r -> new Thread(r, "person-lookup-batcher-" + count.incrementAndGet()));
+		byId = new Batcher<>(ids -> repository.findByIdIn(ids).stream().collect(Collectors.toMap(Person::getId, Function.identity())), "id");
+		byNin = new Batcher<>(nins -> repository.findByNinIn(nins).stream().collect(Collectors.toMap(Person::getNin, Function.identity())), "nin");
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	public Optional<Person> findById(Long id) {
+		return byId.load(id);
+	}
+
+	public Optional<Person> findByNin(String nin) {
+		return byNin.load(nin);
+	}
+
+	private static final class Batch<K> {
+
+		private final Map<K, CompletableFuture<Optional<Person>>> entries = new LinkedHashMap<>();
+
+		private boolean flushed;
+
+	}
+
+	private final class Batcher<K> {
+
+		private final Function<Collection<K>, Map<K, Person>> query;
+
+		private final DistributionSummary sizes;
+
+		// the batch still taking keys, guarded by this
+		private Batch<K> open;
+
+		Batcher(Function<Collection<K>, Map<K, Person>> query, String by) {
+			this.query = query;
+			this.sizes = DistributionSummary.builder("person.lookups.batch.size").description("Keys loaded together by the lookup batcher")
+					.tag("by", by).register(meterRegistry);
+		}
+
+		Optional<Person> load(K key) {
+			CompletableFuture<Optional<Person>> entry;
+			Batch<K> full = null;
+			synchronized (this) {
+				if (open == null) {
+					Batch<K> batch = new Batch<>();
+					open = batch;
+					executor.schedule(() -> flush(batch), maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+				}
+				entry = open.entries.computeIfAbsent(key, k -> new CompletableFuture<>());
+				if (open.entries.size() >= maxBatch) {
+					full = open;
+					open = null;
+				}
+			}
+			if (full != null) {
+				Batch<K> batch = full;
+				executor.execute(() -> flush(batch));
+			}
+
+			try {
+				// a copy each, the same key may have been asked for by several callers
+				return entry.get(timeout.toNanos(), TimeUnit.NANOSECONDS).map(Person::copy);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw (RuntimeException) e.getCause();
+			} catch (TimeoutException e) {
+				throw new QueryTimeoutException("The batched lookup of " + key + " took longer than " + timeout);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new QueryTimeoutException("Interrupted while waiting for the batched lookup of " + key);
+			}
+		}
+
+		private void flush(Batch<K> batch) {
+			// a batch that filled up is flushed right away and once more by its timer
+			synchronized (this) {
+				if (batch.flushed) {
+					return;
+				}
+				batch.flushed = true;
+				if (open == batch) {
+					open = null;
+				}
+			}
+			sizes.record(batch.entries.size());
+			try {
+				Map<K, Person> found = query.apply(batch.entries.keySet());
+				batch.entries.forEach((key, entry) -> entry.complete(Optional.ofNullable(found.get(key))));
+			} catch (RuntimeException | Error e) {
+				batch.entries.values().forEach(entry -> entry.completeExceptionally(e));
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.elgleidson.demo.test.domain.Person;
+
+/**
+ * The persons found keyed by the id or NIN they were asked by, in the order asked, and the ids and NINs without a
+ * person.
+ */
+public class PersonLookupResult {
+
+	private final Map<Long, Person> ids;
+
+	private final Map<String, Person> nins;
+
+	private final List<Long> missingIds;
+
+	private final List<String> missingNins;
+
+	public PersonLookupResult(Map<Long, Person> ids, Map<String, Person> nins, List<Long> missingIds, List<String> missingNins) {
+		this.ids = ids;
+		this.nins = nins;
+		this.missingIds = missingIds;
+		this.missingNins = missingNins;
+	}
+
+	public Map<Long, Person> getIds() {
+		return ids;
+	}
+
+	public Map<String, Person> getNins() {
+		return nins;
+	}
+
+	public List<Long> getMissingIds() {
+		return missingIds;
+	}
+
+	public List<String> getMissingNins() {
+		return missingNins;
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonSpecifications;
+
+/**
+ * Filters, order and keyset position of a person search. Unset filters match everyone.
+ */
+public class PersonSearch {
+
+	public enum SortKey {
+
+		ID(null, false, p -> null, s -> null),
+		NAME("name", true, p -> p.getName().toLowerCase(Locale.ROOT), s -> s),
+		BIRTHDAY("birthday", false, Person::getBirthday, LocalDate::parse);
+
+		private final String property;
+
+		private final boolean ignoreCase;
+
+		private final Function<Person, Comparable<?>> key;
+
+		private final Function<String, Comparable<?>> parser;
+
+		SortKey(String property, boolean ignoreCase, Function<Person, Comparable<?>> key, Function<String, Comparable<?>> parser) {
+			this.property = property;
+			this.ignoreCase = ignoreCase;
+			this.key = key;
+			this.parser = parser;
+		}
+
+		/** The value a keyset position resumes from, {@code null} when ordering by id alone. */
+		public Comparable<?> keyOf(Person person) {
+			return key.apply(person);
+		}
+
+		public Comparable<?> parseKey(String value) {
+			return parser.apply(value);
+		}
+
+	}
+
+	private String name;
+
+	private LocalDate bornFrom;
+
+	private LocalDate bornTo;
+
+	private String phone;
+
+	private SortKey sortBy = SortKey.ID;
+
+	private Direction direction = Direction.ASC;
+
+	private Comparable<?> afterKey;
+
+	private Long afterId;
+
+	public PersonSearch name(String name) {
+		this.name = name;
+		return this;
+	}
+
+	public PersonSearch bornFrom(LocalDate bornFrom) {
+		this.bornFrom = bornFrom;
+		return this;
+	}
+
+	public PersonSearch bornTo(LocalDate bornTo) {
+		this.bornTo = bornTo;
+		return this;
+	}
+
+	public PersonSearch phone(String phone) {
+		this.phone = phone;
+		return this;
+	}
+
+	public PersonSearch sortBy(SortKey sortBy, Direction direction) {
+		this.sortBy = sortBy;
+		this.direction = direction;
+		return this;
+	}
+
+	public PersonSearch after(Comparable<?> key, Long id) {
+		this.afterKey = key;
+		this.afterId = id;
+		return this;
+	}
+
+	public SortKey getSortBy() {
+		return sortBy;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	Specification<Person> toSpecification() {
+		Specification<Person> specification = Specification.where(null);
+		if (name != null && !name.isEmpty()) {
+			specification = specification.and(PersonSpecifications.nameStartsWith(name));
+		}
+		if (bornFrom != null) {
+			specification = specification.and(PersonSpecifications.bornOnOrAfter(bornFrom));
+		}
+		if (bornTo != null) {
+			specification = specification.and(PersonSpecifications.bornOnOrBefore(bornTo));
+		}
+		if (phone != null && !phone.isEmpty()) {
+			specification = specification.and(PersonSpecifications.phone(phone));
+		}
+		if (afterId != null) {
+			specification = specification.and(PersonSpecifications.after(sortBy.property, sortBy.ignoreCase, direction, (Comparable) afterKey, afterId));
+		}
+		return specification;
+	}
+
+	Sort toSort() {
+		Sort byId = Sort.by(new Order(direction, "id"));
+		if (sortBy.property == null) {
+			return byId;
+		}
+		Order order = new Order(direction, sortBy.property);
+		return Sort.by(sortBy.ignoreCase ? order.ignoreCase() : order).and(byId);
+	}
+
+}
@@ -1,44 +1,328 @@
 package com.github.elgleidson.demo.test.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.validation.constraints.NotNull;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonChange.Operation;
+import com.github.elgleidson.demo.test.domain.PersonCollectionVersion;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
 import com.github.elgleidson.demo.test.repository.PersonRepository;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
 public class PersonService {
 	
 	@Autowired
 	private PersonRepository repository;
 	
+	@Autowired
+	private PersonCache cache;
+	
+	@Autowired
+	private PersonCacheInvalidator invalidator;
+	
+	@Autowired
+	private PersonChangeLog changeLog;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Value("${demo.persons.single-flight.enabled:true}")
+	private boolean singleFlight;
+	
+	@Value("${demo.persons.single-flight.timeout:5s}")
+	private Duration singleFlightTimeout;
+	
+	@Value("${demo.persons.lookup.chunk-size:500}")
+	private int lookupChunkSize;
+	
+	@Autowired(required = false)
+	private PersonLookupBatcher batcher;
+	
+	private SingleFlight<Long, Loaded> byIdFlight;
+	
+	private SingleFlight<String, Loaded> byNinFlight;
+	
+	/**
+	 * A lookup's result with the cache stamp taken before it queried.
+	 */
+	private static final class Loaded {
+		
+		private final Optional<Person> person;
+		
+		private final long stamp;
+		
+		Loaded(Optional<Person> person, long stamp) {
+			this.person = person;
+			this.stamp = stamp;
+		}
+		
+		Loaded copy() {
+			return new Loaded(person.map(Person::copy), stamp);
+		}
+		
+	}
+	
+    @PostConstruct
+    public void init() {
+        byIdFlight = new SingleFlight<>(singleFlightTimeout, Loaded::copy, coalesced("id"));
+        byNinFlight = new SingleFlight<>(singleFlightTimeout, Loaded::copy, coalesced("nin"));
+    }
+    
+    private Counter coalesced(String by) {
+        return Counter.builder("person.lookups.coalesced").description("Lookups that waited for the same one already running instead of querying")
+                .tag("by", by).register(meterRegistry);
+    }
+	
+	@Timed("person.service")
 	@Transactional
     public Person save(@NotNull Person Person) {
+        Operation operation = Person.getId() != null ? Operation.UPDATE : Operation.INSERT;
+        if (Person.getId() != null) {
+            cache.evict(Person.getId());
+            invalidator.changed(Person.getId());
+        } else {
+            invalidator.created();
+        }
         Person = repository.save(Person);
+        // flush here so a duplicate NIN fails on the unique index inside this call rather than at commit
+        repository.flush();
+        changeLog.record(operation, Collections.singletonList(Person.getId()));
         return Person;
     }
 
+    @Timed("person.service")
+    @Transactional
+    public Optional<Person> update(@NotNull Long id, @NotNull Person person, Long expectedVersion) {
+        cache.evict(id);
+        invalidator.changed(id);
+        // a single UPDATE tells whether the row (at the expected version) was there, no SELECT beforehand
+        int updated = expectedVersion == null ? repository.update(id, person) : repository.updateIfVersion(id, expectedVersion, person);
+        if (updated == 0) {
+            if (expectedVersion != null && repository.existsById(id)) {
+                throw new OptimisticLockingFailureException("Person " + id + " is not at version " + expectedVersion);
+            }
+            return Optional.empty();
+        }
+        changeLog.record(Operation.UPDATE, Collections.singletonList(id));
+        
+        // the row stays locked by the update until the commit, so the version read back is the one it wrote
+        Long version = expectedVersion != null ? Long.valueOf(expectedVersion + 1) : repository.findVersionById(id).orElse(null);
+        return Optional.of(person.copy().id(id).version(version));
+    }
+
+    @Timed("person.service")
+    @Transactional
+    public List<Person> createAll(@NotNull List<Person> persons) {
+        invalidator.created();
+        List<Person> created = repository.saveAll(persons);
+        // one flush lets Hibernate send the inserts as JDBC batches, clearing keeps the chunk from piling up
+        repository.flush();
+        entityManager.clear();
+        changeLog.record(Operation.INSERT, created.stream().map(Person::getId).collect(Collectors.toList()));
+        return created;
+    }
+
+    @Timed("person.service")
     @Transactional
     public void deleteById(@NotNull Long id) {
+        cache.evict(id);
+        invalidator.changed(id);
         repository.deleteById(id);
+        changeLog.record(Operation.DELETE, Collections.singletonList(id));
     }
 
+    @Timed("person.service")
     public Optional<Person> findById(@NotNull Long id) {
-        return repository.findById(id);
+        Person cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        return load(byIdFlight, id, repository::findById, key -> batcher.findById(key));
     }
     
+    @Timed("person.service")
     public Optional<Person> findByNin(@NotNull String nin) {
-        return repository.findByNin(nin);
+        Long id = cache.getIdByNin(nin);
+        if (id != null) {
+            // the NIN may have moved to another person or been removed since it was cached
+            Optional<Person> cached = findById(id).filter(p -> nin.equals(p.getNin()));
+            if (cached.isPresent()) {
+                return cached;
+            }
+            cache.evictNin(nin);
+        }
+        
+        return load(byNinFlight, nin, repository::findByNin, key -> batcher.findByNin(key));
+    }
+
+    private <K> Optional<Person> load(SingleFlight<K, Loaded> flight, K key, Function<K, Optional<Person>> query,
+            Function<K, Optional<Person>> batched) {
+        long stamp = cache.stamp();
+        // a caller in a transaction has to see what that transaction sees, not what another one read
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.apply(key).map(person -> cached(person, stamp));
+        }
+        
+        Supplier<Loaded> lookup = () -> new Loaded((batcher != null ? batched : query).apply(key).map(person -> cached(person, stamp)), stamp);
+        if (!singleFlight) {
+            return lookup.get().person;
+        }
+        Loaded loaded = flight.execute(key, lookup);
+        // joined a lookup that started before a change to the person, which may have committed before this call
+        if (loaded.stamp != stamp && loaded.person.isPresent() && cache.evictedSince(loaded.person.get().getId(), loaded.stamp)) {
+            return query.apply(key).map(person -> cached(person, stamp));
+        }
+        return loaded.person;
+    }
+    
+    private Person cached(Person person, long stamp) {
+        cache.put(person, stamp);
+        return person;
+    }
+
+    /**
+     * Resolves many ids and NINs with a few IN queries of at most {@code chunk-size} keys, after looking in the cache.
+     */
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public PersonLookupResult lookup(@NotNull PersonLookup lookup) {
+        long stamp = cache.stamp();
+        Map<Long, Person> byId = new LinkedHashMap<>();
+        List<Long> idMisses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(lookup.getIds())) {
+            Person cached = cache.get(id);
+            if (cached != null) {
+                byId.put(id, cached);
+            } else {
+                idMisses.add(id);
+            }
+        }
+        Map<Long, Person> foundById = new HashMap<>();
+        chunked(idMisses, repository::findByIdIn).forEach(person -> foundById.put(person.getId(), cached(person, stamp)));
+        
+        Map<String, Person> byNin = new LinkedHashMap<>();
+        List<String> ninMisses = new ArrayList<>();
+        for (String nin : new LinkedHashSet<>(lookup.getNins())) {
+            Long id = cache.getIdByNin(nin);
+            Person cached = id == null ? null : cache.get(id);
+            if (cached != null && nin.equals(cached.getNin())) {
+                byNin.put(nin, cached);
+            } else {
+                ninMisses.add(nin);
+            }
+        }
+        Map<String, Person> foundByNin = new HashMap<>();
+        chunked(ninMisses, repository::findByNinIn).forEach(person -> foundByNin.put(person.getNin(), cached(person, stamp)));
+        
+        // back in the order asked, with the misses apart
+        Map<Long, Person> ids = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(lookup.getIds())) {
+            Person person = byId.containsKey(id) ? byId.get(id) : foundById.get(id);
+            if (person != null) {
+                ids.put(id, person);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        Map<String, Person> nins = new LinkedHashMap<>();
+        List<String> missingNins = new ArrayList<>();
+        for (String nin : new LinkedHashSet<>(lookup.getNins())) {
+            Person person = byNin.containsKey(nin) ? byNin.get(nin) : foundByNin.get(nin);
+            if (person != null) {
+                nins.put(nin, person);
+            } else {
+                missingNins.add(nin);
+            }
+        }
+        return new PersonLookupResult(ids, nins, missingIds, missingNins);
+    }
+    
+    private <K> List<Person> chunked(List<K> keys, Function<List<K>, List<Person>> query) {
+        List<Person> found = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += lookupChunkSize) {
+            found.addAll(query.apply(keys.subList(from, Math.min(from + lookupChunkSize, keys.size()))));
+        }
+        return found;
+    }
+
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public List<PersonView> findAllViews() {
+        return repository.findAllViews();
+    }
+
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public List<PersonView> findViewsAfter(@NotNull Long after, int size) {
+        return repository.findViewsAfter(after, PageRequest.of(0, size));
+    }
+
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public List<PersonSummary> findSummariesAfter(@NotNull Long after, int size) {
+        return repository.findSummariesAfter(after, PageRequest.of(0, size));
+    }
+
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public List<Person> search(@NotNull PersonSearch search, int size) {
+        return repository.search(search.toSpecification(), search.toSort(), size);
+    }
+
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public PersonCollectionVersion collectionVersion() {
+        // the head before anything else is read: a change committing meanwhile moves it for the next request
+        long changeSeq = changeLog.head();
+        return new PersonCollectionVersion(repository.count(), changeSeq);
     }
 
-    public List<Person> findAll() {
-        return repository.findAll();
+    @Timed("person.service")
+    @Transactional(readOnly = true)
+    public void streamAll(@NotNull Consumer<Person> consumer) {
+        // detach each row once it is handed over so the persistence context stays empty while the cursor advances
+        try (Stream<Person> persons = repository.streamAll()) {
+            persons.forEach(person -> {
+                consumer.accept(person);
+                entityManager.detach(person);
+            });
+        }
     }
 
 }
@@ -0,0 +1,163 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Progress of an export or an import. The counters are updated by the thread doing the transfer and can be read at
+ * any time; only the first {@link #MAX_FAILURES} failed entries are kept.
+ */
+public class PersonTransfer {
+
+	public enum Type {
+		EXPORT, IMPORT
+	}
+
+	public enum State {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	public enum Format {
+		CSV("text/csv"), NDJSON("application/x-ndjson");
+
+		private final String mediaType;
+
+		Format(String mediaType) {
+			this.mediaType = mediaType;
+		}
+
+		public String getMediaType() {
+			return mediaType;
+		}
+
+		public static Optional<Format> of(String name) {
+			return Arrays.stream(values()).filter(format -> format.name().equalsIgnoreCase(name)).findFirst();
+		}
+
+	}
+
+	static final int MAX_FAILURES = 100;
+
+	private static final Logger log = LoggerFactory.getLogger(PersonTransfer.class);
+
+	private final String id = UUID.randomUUID().toString();
+
+	private final Type type;
+
+	private final Format format;
+
+	private final Long expected;
+
+	private final long logEvery;
+
+	private final Instant startedAt = Instant.now();
+
+	private final AtomicLong processed = new AtomicLong();
+
+	private final AtomicLong created = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private final List<PersonBatchResult> failures = new ArrayList<>();
+
+	private volatile State state = State.RUNNING;
+
+	private volatile Instant finishedAt;
+
+	private volatile String error;
+
+	public PersonTransfer(Type type, Format format, Long expected, long logEvery) {
+		this.type = type;
+		this.format = format;
+		this.expected = expected;
+		this.logEvery = logEvery;
+	}
+
+	void advance() {
+		long count = processed.incrementAndGet();
+		if (count % logEvery == 0) {
+			log.info("{} {} of persons at {} rows", type, id, count);
+		}
+	}
+
+	void record(PersonBatchResult result) {
+		if (result.getStatus() == PersonBatchResult.Status.CREATED) {
+			created.incrementAndGet();
+		} else if (failed.incrementAndGet() <= MAX_FAILURES) {
+			synchronized (failures) {
+				failures.add(result);
+			}
+		}
+		advance();
+	}
+
+	public void complete() {
+		finishedAt = Instant.now();
+		state = State.COMPLETED;
+	}
+
+	public void fail(String error) {
+		this.error = error;
+		finishedAt = Instant.now();
+		state = State.FAILED;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public Long getExpected() {
+		return expected;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Instant getStartedAt() {
+		return startedAt;
+	}
+
+	public Instant getFinishedAt() {
+		return finishedAt;
+	}
+
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	public long getCreated() {
+		return created.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public List<PersonBatchResult> getFailures() {
+		synchronized (failures) {
+			return new ArrayList<>(failures);
+		}
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Format;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Type;
+
+/**
+ * Runs exports and imports of the whole person table and keeps their progress: while they run and for
+ * {@code retention} after they finished. Imports go through {@link PersonBatchImporter}, one transaction per chunk, so
+ * neither direction holds more than a chunk or a buffer of rows in memory.
+ */
+@Service
+public class PersonTransfers {
+
+	private static final Logger log = LoggerFactory.getLogger(PersonTransfers.class);
+
+	@Autowired
+	private PersonService service;
+
+	@Autowired
+	private PersonExporter exporter;
+
+	@Autowired
+	private PersonBatchImporter importer;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${demo.persons.transfer.retention:1h}")
+	private Duration retention;
+
+	@Value("${demo.persons.transfer.log-every:100000}")
+	private long logEvery;
+
+	private final Map<String, PersonTransfer> running = new ConcurrentHashMap<>();
+
+	private Cache<String, PersonTransfer> finished;
+
+	@PostConstruct
+	public void init() {
+		finished = Caffeine.newBuilder().expireAfterWrite(retention).build();
+	}
+
+	/**
+	 * Registers an export, so its id and row count can be sent before the rows.
+	 */
+	public PersonTransfer startExport(Format format) {
+		return start(Type.EXPORT, format, service.collectionVersion().getCount());
+	}
+
+	public void export(PersonTransfer transfer, OutputStream out) throws IOException {
+		try {
+			exporter.export(transfer, out);
+		} catch (IOException | RuntimeException e) {
+			finish(transfer, e.toString());
+			throw e;
+		}
+		finish(transfer, null);
+	}
+
+	/**
+	 * Imports every entry of the input as a new person, ignoring the ids an export wrote. Input that cannot be parsed
+	 * stops the import with a failed transfer; every entry read before it, the last partial chunk included, stays created.
+	 */
+	public PersonTransfer importAll(Format format, InputStream in) throws IOException {
+		PersonTransfer transfer = start(Type.IMPORT, format, null);
+		try (MappingIterator<Person> json = format == Format.NDJSON ? objectMapper.readerFor(Person.class).readValues(in) : null) {
+			Iterator<Person> persons = json != null ? withoutIds(json) : PersonCsv.read(in);
+			importer.importAll(persons, transfer::record);
+		} catch (PersonCsv.MalformedCsvException | JsonProcessingException | RuntimeJsonMappingException e) {
+			finish(transfer, e.getMessage());
+			return transfer;
+		} catch (RuntimeException e) {
+			// MappingIterator wraps parse errors that are not about mapping in a plain RuntimeException
+			if (e.getCause() instanceof JsonProcessingException) {
+				finish(transfer, e.getCause().getMessage());
+				return transfer;
+			}
+			finish(transfer, e.toString());
+			throw e;
+		} catch (IOException e) {
+			finish(transfer, e.toString());
+			throw e;
+		}
+		finish(transfer, null);
+		return transfer;
+	}
+
+	private static Iterator<Person> withoutIds(Iterator<Person> persons) {
+		return new Iterator<Person>() {
+
+			@Override
+			public boolean hasNext() {
+				return persons.hasNext();
+			}
+
+			@Override
+			public Person next() {
+				return persons.next().id(null);
+			}
+
+		};
+	}
+
+	public Optional<PersonTransfer> find(String id) {
+		PersonTransfer transfer = running.get(id);
+		return transfer != null ? Optional.of(transfer) : Optional.ofNullable(finished.getIfPresent(id));
+	}
+
+	public List<PersonTransfer> findAll() {
+		return Stream.concat(running.values().stream(), finished.asMap().values().stream())
+				.sorted(Comparator.comparing(PersonTransfer::getStartedAt).reversed())
+				.collect(Collectors.toList());
+	}
+
+	private PersonTransfer start(Type type, Format format, Long expected) {
+		PersonTransfer transfer = new PersonTransfer(type, format, expected, logEvery);
+		running.put(transfer.getId(), transfer);
+		log.info("{} {} of persons as {} started", type, transfer.getId(), format);
+		return transfer;
+	}
+
+	private void finish(PersonTransfer transfer, String error) {
+		if (error == null) {
+			transfer.complete();
+			log.info("{} {} of persons completed with {} rows", transfer.getType(), transfer.getId(), transfer.getProcessed());
+		} else {
+			transfer.fail(error);
+			log.warn("{} {} of persons failed after {} rows: {}", transfer.getType(), transfer.getId(), transfer.getProcessed(), error);
+		}
+		finished.put(transfer.getId(), transfer);
+		running.remove(transfer.getId());
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.elgleidson.demo.test.domain.Person;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Write-behind creation of persons. Submitted persons wait in a bounded queue and a single writer thread hands them to
+ * {@link PersonBatchImporter} in groups of up to {@code max-batch} persons or whatever arrived within {@code max-delay},
+ * so a burst of creates shares a few transactions and one connection instead of taking one of each per request.
+ * Stopping the context drains the queue before the data source goes away.
+ */
+@Service
+@ConditionalOnProperty(name = "demo.persons.write-behind.enabled", havingValue = "true")
+public class PersonWriteBehind implements SmartLifecycle {
+
+	static final String WRITE_FAILED = "Person could not be written";
+
+	private static final Logger log = LoggerFactory.getLogger(PersonWriteBehind.class);
+
+	private static final class Entry {
+
+		private final String trackingId;
+
+		private final Person person;
+
+		Entry(String trackingId, Person person) {
+			this.trackingId = trackingId;
+			this.person = person;
+		}
+
+	}
+
+	@Autowired
+	private PersonBatchImporter importer;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${demo.persons.write-behind.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${demo.persons.write-behind.max-batch:500}")
+	private int maxBatch;
+
+	@Value("${demo.persons.write-behind.max-delay:50ms}")
+	private Duration maxDelay;
+
+	@Value("${demo.persons.write-behind.status-retention:10m}")
+	private Duration statusRetention;
+
+	@Value("${demo.persons.write-behind.status-max-size:100000}")
+	private long statusMaxSize;
+
+	@Value("${demo.persons.write-behind.shutdown-timeout:30s}")
+	private Duration shutdownTimeout;
+
+	private BlockingQueue<Entry> queue;
+
+	private Cache<String, PersonWriteStatus> statuses;
+
+	private Thread writer;
+
+	private volatile boolean accepting;
+
+	/**
+	 * Queues a copy of {@code person} and returns its tracking id, or nothing when the queue is full or the service is
+	 * stopping.
+	 */
+	public Optional<String> submit(Person person) {
+		if (!accepting) {
+			return Optional.empty();
+		}
+		String trackingId = UUID.randomUUID().toString();
+		// the status goes first, the writer may finish the entry before offer returns
+		statuses.put(trackingId, PersonWriteStatus.queued(trackingId));
+		if (!queue.offer(new Entry(trackingId, person.copy()))) {
+			statuses.invalidate(trackingId);
+			return Optional.empty();
+		}
+		return Optional.of(trackingId);
+	}
+
+	public Optional<PersonWriteStatus> status(String trackingId) {
+		return Optional.ofNullable(statuses.getIfPresent(trackingId));
+	}
+
+	public int queued() {
+		return queue.size();
+	}
+
+	private void run() {
+		List<Entry> group = new ArrayList<>(maxBatch);
+		try {
+			while (accepting || !queue.isEmpty()) {
+				Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				long deadline = System.nanoTime() + maxDelay.toNanos();
+				while (group.size() < maxBatch) {
+					long remaining = deadline - System.nanoTime();
+					Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					group.add(next);
+					queue.drainTo(group, maxBatch - group.size());
+				}
+				write(group);
+				group.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Write-behind writer interrupted with {} persons queued", queue.size() + group.size());
+		}
+	}
+
+	private void write(List<Entry> group) {
+		List<Person> persons = group.stream().map(e -> e.person).collect(Collectors.toList());
+		try {
+			importer.importAll(persons.iterator(),
+					result -> statuses.put(group.get(result.getIndex()).trackingId, PersonWriteStatus.of(group.get(result.getIndex()).trackingId, result)));
+		} catch (RuntimeException e) {
+			log.error("Write-behind group of {} persons failed", group.size(), e);
+			for (Entry entry : group) {
+				PersonWriteStatus status = statuses.getIfPresent(entry.trackingId);
+				if (status == null || status.getState() == PersonWriteStatus.State.QUEUED) {
+					statuses.put(entry.trackingId, PersonWriteStatus.failed(entry.trackingId, Collections.singletonList(WRITE_FAILED)));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		statuses = Caffeine.newBuilder().maximumSize(statusMaxSize).expireAfterWrite(statusRetention).build();
+		Gauge.builder("person.write-behind.queued", this, PersonWriteBehind::queued).register(meterRegistry);
+		accepting = true;
+		writer = new Thread(this::run, "person-write-behind");
+		writer.start();
+	}
+
+	@Override
+	public void stop() {
+		accepting = false;
+		try {
+			writer.join(shutdownTimeout.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (writer.isAlive()) {
+			log.warn("Write-behind queue not drained within {}, {} persons left", shutdownTimeout, queue.size());
+			writer.interrupt();
+		}
+		// whatever is still queued (timed out, or offered while the writer was finishing) is reported instead of lost
+		for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+			statuses.put(entry.trackingId, PersonWriteStatus.failed(entry.trackingId, Collections.singletonList(WRITE_FAILED)));
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return writer != null && writer.isAlive();
+	}
+
+}
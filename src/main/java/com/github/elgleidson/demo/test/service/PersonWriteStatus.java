@@ -0,0 +1,56 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PersonWriteStatus {
+
+	public enum State {
+		QUEUED, CREATED, FAILED
+	}
+
+	private final String trackingId;
+
+	private final State state;
+
+	private final Long id;
+
+	private final List<String> errors;
+
+	private PersonWriteStatus(String trackingId, State state, Long id, List<String> errors) {
+		this.trackingId = trackingId;
+		this.state = state;
+		this.id = id;
+		this.errors = errors;
+	}
+
+	public static PersonWriteStatus queued(String trackingId) {
+		return new PersonWriteStatus(trackingId, State.QUEUED, null, Collections.emptyList());
+	}
+
+	public static PersonWriteStatus of(String trackingId, PersonBatchResult result) {
+		State state = result.getStatus() == PersonBatchResult.Status.CREATED ? State.CREATED : State.FAILED;
+		return new PersonWriteStatus(trackingId, state, result.getId(), result.getErrors());
+	}
+
+	public static PersonWriteStatus failed(String trackingId, List<String> errors) {
+		return new PersonWriteStatus(trackingId, State.FAILED, null, errors);
+	}
+
+	public String getTrackingId() {
+		return trackingId;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+}
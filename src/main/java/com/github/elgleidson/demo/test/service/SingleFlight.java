@@ -0,0 +1,74 @@
+package com.github.elgleidson.demo.test.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * Lets concurrent calls for the same key share one execution. The first caller runs it on its own thread, callers
+ * arriving meanwhile wait at most {@code timeout} for its result, which each gets a {@code share} of, or for its
+ * exception, which they all get. Nothing is kept once the execution is over.
+ */
+final class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final Duration timeout;
+
+	private final UnaryOperator<V> share;
+
+	private final Counter coalesced;
+
+	SingleFlight(Duration timeout, UnaryOperator<V> share, Counter coalesced) {
+		this.timeout = timeout;
+		this.share = share;
+		this.coalesced = coalesced;
+	}
+
+	V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> own = new CompletableFuture<>();
+		CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+		if (running != null) {
+			coalesced.increment();
+			return share.apply(await(key, running));
+		}
+
+		try {
+			V value = call.get();
+			own.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, own);
+		}
+	}
+
+	private V await(K key, CompletableFuture<V> running) {
+		try {
+			return running.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw (RuntimeException) e.getCause();
+		} catch (TimeoutException e) {
+			throw new QueryTimeoutException("The lookup of " + key + " already running took longer than " + timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QueryTimeoutException("Interrupted while waiting for the lookup of " + key);
+		}
+	}
+
+}
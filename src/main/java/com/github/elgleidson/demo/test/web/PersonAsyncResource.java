@@ -0,0 +1,57 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonWriteBehind;
+import com.github.elgleidson.demo.test.service.PersonWriteStatus;
+
+@RestController
+@RequestMapping("/api/persons/async")
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "demo.persons.write-behind.enabled", havingValue = "true")
+public class PersonAsyncResource {
+
+	@Autowired
+	private PersonWriteBehind writeBehind;
+
+	@PostMapping
+	public ResponseEntity<PersonWriteStatus> create(@Valid @RequestBody Person person) {
+		if (Objects.nonNull(person.getId())) {
+			return ResponseEntity.badRequest().build();
+		}
+
+		Optional<String> trackingId = writeBehind.submit(person);
+		if (!trackingId.isPresent()) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+		}
+
+		URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{trackingId}").buildAndExpand(trackingId.get()).toUri();
+		return ResponseEntity.accepted().location(location).body(PersonWriteStatus.queued(trackingId.get()));
+	}
+
+	@GetMapping("/{trackingId}")
+	public ResponseEntity<PersonWriteStatus> getStatus(@PathVariable("trackingId") String trackingId) {
+		return writeBehind.status(trackingId).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.github.elgleidson.demo.test.service.PersonChangeLog;
+import com.github.elgleidson.demo.test.service.PersonChanges;
+
+/**
+ * The person changes after a token, for mirrors of the persons to follow rather than download them all again. A mirror
+ * starts from {@code since=0}; once the oldest changes have been deleted, or when the database had persons before it had
+ * the change log, that is answered 410 with the current token in {@code X-Change-Token}, and the mirror downloads the
+ * persons and then follows the changes from that token. Changes are applied by id, inserts and updates alike as the
+ * state they carry, so the ones the download already had are harmless.
+ */
+@RestController
+@RequestMapping("/api/persons")
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class PersonChangeResource {
+
+	public static final String CHANGE_TOKEN = "X-Change-Token";
+	public static final String LAST_EVENT_ID = "Last-Event-ID";
+
+	@Autowired
+	private PersonChangeLog changeLog;
+
+	@Autowired
+	private PersonChangeStream stream;
+
+	@Value("${demo.persons.page.max-size:1000}")
+	private int maxPageSize;
+
+	@GetMapping("/changes")
+	public ResponseEntity<PersonChanges> getChanges(@RequestParam(name = "since", defaultValue = "0") long since,
+			@RequestParam(name = "size", defaultValue = "100") int size) {
+		if (since < 0 || size < 1) {
+			return ResponseEntity.badRequest().build();
+		}
+
+		Optional<PersonChanges> changes = changeLog.changesSince(since, Math.min(size, maxPageSize));
+		if (!changes.isPresent()) {
+			return gone();
+		}
+		return ResponseEntity.ok().header(CHANGE_TOKEN, String.valueOf(changes.get().getNext())).body(changes.get());
+	}
+
+	@GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamChanges(@RequestParam(name = "since", defaultValue = "0") long since,
+			@RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId) throws IOException {
+		// a reconnecting event source resumes after the last event it got
+		long from = lastEventId != null ? lastEventId : since;
+		if (from < 0) {
+			return ResponseEntity.badRequest().build();
+		}
+		if (!changeLog.isAvailable(from)) {
+			return gone();
+		}
+		return ResponseEntity.ok(stream.subscribe(from));
+	}
+
+	private <T> ResponseEntity<T> gone() {
+		return ResponseEntity.status(HttpStatus.GONE).header(CHANGE_TOKEN, String.valueOf(changeLog.head())).build();
+	}
+
+}
@@ -0,0 +1,219 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.github.elgleidson.demo.test.domain.PersonChange;
+import com.github.elgleidson.demo.test.service.PersonChangeLog;
+import com.github.elgleidson.demo.test.service.PersonChanges;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends the person changes to the subscribers of {@code GET /api/persons/changes} as server-sent events, the
+ * {@code seq} of each as its id so that a client reconnecting with {@code Last-Event-ID} resumes after it. One thread
+ * reads the head of the {@link PersonChangeLog} every {@code poll-interval} and hands each subscriber behind it to one
+ * of {@code senders} threads, which sends it the changes it is missing, {@code page-size} per query; the others get a
+ * comment every {@code heartbeat}, which finds the closed connections. A subscriber has at most one send in progress,
+ * and one that has not returned within {@code send-timeout} is dropped, so a slow client holds up a sender thread
+ * rather than the feed.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class PersonChangeStream implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(PersonChangeStream.class);
+
+	@Autowired
+	private PersonChangeLog changeLog;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${demo.persons.changes.stream.poll-interval:1s}")
+	private Duration pollInterval;
+
+	@Value("${demo.persons.changes.stream.heartbeat:15s}")
+	private Duration heartbeat;
+
+	@Value("${demo.persons.changes.stream.timeout:30m}")
+	private Duration timeout;
+
+	@Value("${demo.persons.changes.stream.page-size:500}")
+	private int pageSize;
+
+	@Value("${demo.persons.changes.stream.senders:4}")
+	private int senderThreads;
+
+	@Value("${demo.persons.changes.stream.send-timeout:10s}")
+	private Duration sendTimeout;
+
+	@Value("${demo.persons.changes.stream.queue-capacity:10000}")
+	private int queueCapacity;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	private ScheduledExecutorService poller;
+
+	private ThreadPoolExecutor senders;
+
+	private static final class Subscriber {
+
+		private final SseEmitter emitter;
+
+		// whether a sender has it, only that sender touches since and sentAt meanwhile
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		private volatile long sendingSince;
+
+		private volatile long since;
+
+		private volatile long sentAt = System.nanoTime();
+
+		Subscriber(SseEmitter emitter, long since) {
+			this.emitter = emitter;
+			this.since = since;
+		}
+
+	}
+
+	public SseEmitter subscribe(long since) throws IOException {
+		return subscribe(new SseEmitter(timeout.toMillis()), since);
+	}
+
+	SseEmitter subscribe(SseEmitter emitter, long since) throws IOException {
+		// commits the response, so the client knows it is subscribed before the first change
+		emitter.send(SseEmitter.event().comment("subscribed"));
+		Subscriber subscriber = new Subscriber(emitter, since);
+		emitter.onCompletion(() -> subscribers.remove(subscriber));
+		emitter.onTimeout(emitter::complete);
+		subscribers.add(subscriber);
+		return emitter;
+	}
+
+	void poll() {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+
+		long head = changeLog.head();
+		long now = System.nanoTime();
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.sending.get()) {
+				if (now - subscriber.sendingSince > sendTimeout.toNanos()) {
+					// its sender completes it once the write returns, touching the emitter here would wait for that write
+					subscribers.remove(subscriber);
+					log.debug("Dropped a person change subscriber still sending after {}", sendTimeout);
+				}
+				continue;
+			}
+			boolean behind = subscriber.since < head;
+			if (!behind && now - subscriber.sentAt <= heartbeat.toNanos()) {
+				continue;
+			}
+			subscriber.sendingSince = now;
+			subscriber.sending.set(true);
+			try {
+				senders.execute(() -> deliver(subscriber, behind));
+			} catch (RejectedExecutionException e) {
+				// the senders are behind, the next poll tries again
+				subscriber.sending.set(false);
+			}
+		}
+	}
+
+	private void deliver(Subscriber subscriber, boolean behind) {
+		subscriber.sendingSince = System.nanoTime();
+		try {
+			if (behind) {
+				send(subscriber);
+			} else {
+				subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+				subscriber.sentAt = System.nanoTime();
+			}
+			if (!subscribers.contains(subscriber)) {
+				// dropped while sending
+				subscriber.emitter.complete();
+			}
+		} catch (IOException | IllegalStateException e) {
+			// gone, or completed meanwhile
+			subscribers.remove(subscriber);
+			subscriber.emitter.completeWithError(e);
+		} finally {
+			subscriber.sending.set(false);
+		}
+	}
+
+	private void send(Subscriber subscriber) throws IOException {
+		Optional<PersonChanges> page;
+		do {
+			page = changeLog.changesSince(subscriber.since, pageSize);
+			if (!page.isPresent()) {
+				// deleted before this subscriber got them, reconnecting tells it to download the persons again
+				subscribers.remove(subscriber);
+				subscriber.emitter.complete();
+				return;
+			}
+			for (PersonChange change : page.get().getChanges()) {
+				subscriber.emitter.send(SseEmitter.event().id(String.valueOf(change.getSeq())).data(change, MediaType.APPLICATION_JSON));
+			}
+			subscriber.since = page.get().getNext();
+			subscriber.sentAt = System.nanoTime();
+		} while (page.get().isMore());
+	}
+
+	@Override
+	public void start() {
+		Gauge.builder("person.changes.subscribers", subscribers, Set::size).description("Clients following the person changes as events")
+				.register(meterRegistry);
+		AtomicInteger senderCount = new AtomicInteger();
+		// a subscriber is queued at most once, those beyond queue-capacity wait for the next poll
+		senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+				r -> new Thread(r, "person-change-sender-" + senderCount.incrementAndGet()));
+		poller = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "person-change-stream"));
+		poller.scheduleWithFixedDelay(() -> {
+			try {
+				poll();
+			} catch (RuntimeException e) {
+				log.warn("Sending person changes failed: {}", e.toString());
+			}
+		}, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop() {
+		poller.shutdownNow();
+		senders.shutdownNow();
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+		subscribers.clear();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return poller != null && !poller.isShutdown();
+	}
+
+}
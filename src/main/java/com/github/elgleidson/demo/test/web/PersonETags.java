@@ -0,0 +1,71 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity.BodyBuilder;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonCollectionVersion;
+
+/**
+ * Strong entity tags for persons, taken from their version column, and weak ones for the collection as a whole. The
+ * same tag goes with every format a resource is served in, so the responses vary by {@code Accept}: a cache must not
+ * answer a request for one format with another. The collection tags are weak because its formats are not the same
+ * bytes; the person tags stay strong for {@code If-Match}.
+ */
+final class PersonETags {
+
+	static final String ANY = "*";
+
+	private PersonETags() {
+	}
+
+	static String of(Long version) {
+		return "\"" + version + "\"";
+	}
+
+	static String of(PersonCollectionVersion version) {
+		return "W/\"" + version + "\"";
+	}
+
+	/**
+	 * Clients may reuse a response for {@code maxAge}, after that (or always, for zero) they have to revalidate it with
+	 * {@code If-None-Match}.
+	 */
+	static CacheControl cacheControl(Duration maxAge) {
+		return maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge.getSeconds(), TimeUnit.SECONDS).mustRevalidate();
+	}
+
+	/**
+	 * Reads the version out of an {@code If-Match} value. Returns {@code null} for {@code *}, throws
+	 * {@link IllegalArgumentException} for anything that cannot be one of our tags (weak tags included).
+	 */
+	static Long parseVersion(String ifMatch) {
+		String value = ifMatch.trim();
+		if (ANY.equals(value)) {
+			return null;
+		}
+		if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+			throw new IllegalArgumentException("Not a strong entity tag: " + ifMatch);
+		}
+		return Long.valueOf(value.substring(1, value.length() - 1));
+	}
+
+	static BodyBuilder withETag(BodyBuilder builder, Person person) {
+		return person.getVersion() == null ? builder : builder.eTag(of(person.getVersion()));
+	}
+
+	static ResponseEntity<Person> ok(Person person, CacheControl cacheControl) {
+		// a matching If-None-Match turns this into a 304 when the response is written
+		return withETag(ResponseEntity.ok(), person).varyBy(HttpHeaders.ACCEPT).cacheControl(cacheControl).body(person);
+	}
+
+	static BodyBuilder collection(String eTag, CacheControl cacheControl) {
+		return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).cacheControl(cacheControl);
+	}
+
+}
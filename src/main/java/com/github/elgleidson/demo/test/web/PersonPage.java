@@ -0,0 +1,24 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.util.List;
+
+public class PersonPage<T> {
+
+	private final List<T> content;
+
+	private final String next;
+
+	public PersonPage(List<T> content, String next) {
+		this.content = content;
+		this.next = next;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.github.elgleidson.demo.test.config.ReactiveConfiguration;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
+import com.github.elgleidson.demo.test.service.PersonLookup;
+import com.github.elgleidson.demo.test.service.PersonLookupResult;
+import com.github.elgleidson.demo.test.service.PersonSearch;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * The {@code /api/persons} endpoints for the reactive execution mode. Every {@link PersonService} call runs on the
+ * bounded JDBC scheduler, so a slow database queues work there instead of holding event loop threads.
+ * <p>
+ * Served as in the servlet mode: the list (JSON or NDJSON), its keyset pages ({@code ?size=}), {@code /summary},
+ * {@code /search}, {@code /lookup} and the CRUD of single persons, with the same entity tags, {@code Cache-Control}
+ * and 304 answers to {@code If-None-Match}. The endpoints that stream request bodies or keep connections open on
+ * servlet threads ({@code /batch}, {@code /export}, {@code /import}, {@code /transfers}, {@code /changes} and
+ * {@code /async}) answer 501 here rather than a misleading 404 or 405.
+ */
+@RestController
+@RequestMapping("/api/persons")
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class PersonReactiveResource {
+
+	@Autowired
+	private PersonService service;
+
+	@Autowired
+	@Qualifier(ReactiveConfiguration.JDBC_SCHEDULER)
+	private Scheduler jdbcScheduler;
+
+	@Value("${demo.persons.page.max-size:1000}")
+	private int pageSize;
+
+	@Value("${demo.persons.lookup.max-size:1000}")
+	private int maxLookupSize;
+
+	@Value("${demo.persons.http.max-age:0s}")
+	private Duration maxAge;
+
+	private <T> Mono<T> blocking(Callable<T> call) {
+		return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+	}
+
+	/**
+	 * Answers 304 without running {@code query} when the client has the current version of the collection, as the
+	 * servlet mode does.
+	 */
+	private <T> Mono<ResponseEntity<T>> ifModified(ServerWebExchange exchange, Supplier<Mono<T>> query) {
+		return blocking(service::collectionVersion).flatMap(version -> {
+			String eTag = PersonETags.of(version);
+			if (exchange.checkNotModified(eTag)) {
+				return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+						.cacheControl(PersonETags.cacheControl(maxAge)).<T>build());
+			}
+			return query.get().map(body -> PersonETags.collection(eTag, PersonETags.cacheControl(maxAge)).body(body));
+		});
+	}
+
+	@GetMapping(produces = { "application/json", PersonResource.APPLICATION_NDJSON_VALUE })
+	public Mono<ResponseEntity<Flux<PersonView>>> getAll(ServerWebExchange exchange) {
+		return ifModified(exchange, () -> Mono.just(pagesAfter(0L)));
+	}
+
+	private Flux<PersonView> pagesAfter(Long after) {
+		// one keyset page in memory at a time, the next one is only read once this one has been written
+		return blocking(() -> service.findViewsAfter(after, pageSize)).flatMapMany(page -> {
+			Flux<PersonView> persons = Flux.fromIterable(page);
+			if (page.size() < pageSize) {
+				return persons;
+			}
+			return persons.concatWith(Flux.defer(() -> pagesAfter(page.get(page.size() - 1).getId())));
+		});
+	}
+
+	@GetMapping(params = "size")
+	public Mono<ResponseEntity<PersonPage<PersonView>>> getPage(@RequestParam(name = "after", defaultValue = "0") Long after,
+			@RequestParam("size") int size, ServerWebExchange exchange) {
+		if (size < 1) {
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		int limit = Math.min(size, pageSize);
+		return ifModified(exchange, () -> blocking(() -> page(service.findViewsAfter(after, limit), limit, PersonView::getId)));
+	}
+
+	@GetMapping("/summary")
+	public Mono<ResponseEntity<PersonPage<PersonSummary>>> getSummaryPage(@RequestParam(name = "after", defaultValue = "0") Long after,
+			@RequestParam(name = "size", defaultValue = "100") int size, ServerWebExchange exchange) {
+		if (size < 1) {
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		int limit = Math.min(size, pageSize);
+		return ifModified(exchange, () -> blocking(() -> page(service.findSummariesAfter(after, limit), limit, PersonSummary::getId)));
+	}
+
+	private static <T> PersonPage<T> page(List<T> content, int limit, Function<T, Long> id) {
+		String next = content.size() < limit ? null : String.valueOf(id.apply(content.get(content.size() - 1)));
+		return new PersonPage<>(content, next);
+	}
+
+	@GetMapping("/search")
+	public Mono<ResponseEntity<PersonPage<Person>>> search(@RequestParam(name = "name", required = false) String name,
+			@RequestParam(name = "bornFrom", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate bornFrom,
+			@RequestParam(name = "bornTo", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate bornTo,
+			@RequestParam(name = "phone", required = false) String phone, @RequestParam(name = "sort", defaultValue = "id") String sort,
+			@RequestParam(name = "after", required = false) String after, @RequestParam(name = "size", defaultValue = "20") int size,
+			ServerWebExchange exchange) {
+		if (size < 1) {
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		PersonSearch search;
+		try {
+			search = PersonResource.search(name, bornFrom, bornTo, phone, sort, after);
+		} catch (IllegalArgumentException e) {
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		int limit = Math.min(size, pageSize);
+		return ifModified(exchange, () -> blocking(() -> {
+			List<Person> content = service.search(search, limit);
+			String next = content.size() < limit ? null : PersonSearchCursor.of(search.getSortBy(), content.get(content.size() - 1));
+			return new PersonPage<>(content, next);
+		}));
+	}
+
+	@PostMapping("/lookup")
+	public Mono<ResponseEntity<PersonLookupResult>> lookup(@RequestBody PersonLookup lookup) {
+		if (lookup.size() > maxLookupSize || lookup.getIds().contains(null) || lookup.getNins().contains(null)) {
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		return blocking(() -> ResponseEntity.ok(service.lookup(lookup)));
+	}
+
+	@RequestMapping({ "/batch", "/export", "/import", "/transfers", "/transfers/{id}", "/changes", "/async", "/async/{trackingId}" })
+	public ResponseEntity<Void> notImplemented() {
+		return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+	}
+
+	@GetMapping("/{id}")
+	public Mono<ResponseEntity<Person>> getById(@PathVariable("id") Long id) {
+		return blocking(() -> service.findById(id)).map(this::okOrNotFound);
+	}
+
+	@GetMapping("/nin/{nin}")
+	public Mono<ResponseEntity<Person>> getByNin(@PathVariable("nin") String nin) {
+		return blocking(() -> service.findByNin(nin)).map(this::okOrNotFound);
+	}
+
+	private ResponseEntity<Person> okOrNotFound(Optional<Person> found) {
+		return found.map(p -> PersonETags.ok(p, PersonETags.cacheControl(maxAge))).orElseGet(() -> ResponseEntity.notFound().build());
+	}
+
+	@PostMapping
+	public Mono<ResponseEntity<Person>> create(@Valid @RequestBody Person person) {
+		if (Objects.nonNull(person.getId())) {
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		return blocking(() -> service.save(person))
+				.map(created -> PersonETags.withETag(ResponseEntity.status(HttpStatus.CREATED), created).body(created));
+	}
+
+	@PutMapping("/{id}")
+	public Mono<ResponseEntity<Person>> update(@PathVariable("id") Long id, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@Valid @RequestBody Person person) {
+		Long expectedVersion;
+		try {
+			expectedVersion = Objects.nonNull(ifMatch) ? PersonETags.parseVersion(ifMatch) : null;
+		} catch (IllegalArgumentException e) {
+			return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+		}
+		return blocking(() -> service.update(id, person, expectedVersion)).map(updated -> updated
+				.map(p -> PersonETags.withETag(ResponseEntity.status(HttpStatus.ACCEPTED), p).body(p))
+				.orElseGet(() -> ResponseEntity.status(Objects.nonNull(ifMatch) ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND).build()));
+	}
+
+	@DeleteMapping("/{id}")
+	public Mono<ResponseEntity<Void>> delete(@PathVariable Long id) {
+		return blocking(() -> {
+			service.deleteById(id);
+			return ResponseEntity.noContent().<Void>build();
+		});
+	}
+
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<Void> handleSaturated(RejectedExecutionException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+	}
+
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<Void> handlePreconditionFailed(OptimisticLockingFailureException e) {
+		return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+	}
+
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	public ResponseEntity<Void> handleConflict(DataIntegrityViolationException e) {
+		return ResponseEntity.status(HttpStatus.CONFLICT).build();
+	}
+
+	@ExceptionHandler(QueryTimeoutException.class)
+	public ResponseEntity<Void> handleTimeout(QueryTimeoutException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+	}
+
+}
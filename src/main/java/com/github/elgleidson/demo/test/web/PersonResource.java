@@ -1,46 +1,225 @@
 package com.github.elgleidson.demo.test.web;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
+import com.github.elgleidson.demo.test.service.PersonBatchImporter;
+import com.github.elgleidson.demo.test.service.PersonBatchResult;
+import com.github.elgleidson.demo.test.service.PersonLookup;
+import com.github.elgleidson.demo.test.service.PersonLookupResult;
+import com.github.elgleidson.demo.test.service.PersonSearch;
+import com.github.elgleidson.demo.test.service.PersonSearch.SortKey;
 import com.github.elgleidson.demo.test.service.PersonService;
 
 @RestController
 @RequestMapping("/api/persons")
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class PersonResource {
 	
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+	public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+	
+	static final String MALFORMED_BATCH = "Malformed, neither this entry nor the ones after it were read: ";
+	
 	@Autowired
 	private PersonService service;
 	
+	@Autowired
+	private PersonBatchImporter importer;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private MappingJackson2SmileHttpMessageConverter smileConverter;
+	
+	@Autowired
+	private MappingJackson2CborHttpMessageConverter cborConverter;
+	
+	@Value("${demo.persons.page.max-size:1000}")
+	private int maxPageSize;
+	
+	@Value("${demo.persons.lookup.max-size:1000}")
+	private int maxLookupSize;
+	
+	@Value("${demo.persons.http.max-age:0s}")
+	private Duration maxAge;
+	
 	@GetMapping
-    public ResponseEntity<List<Person>> getAll() {
-        List<Person> findAll = service.findAll();
-        return ResponseEntity.ok(findAll);
+    public ResponseEntity<List<PersonView>> getAll(WebRequest request) {
+		String eTag = PersonETags.of(service.collectionVersion());
+		if (request.checkNotModified(eTag)) {
+			return notModified();
+		}
+		
+        List<PersonView> findAll = service.findAllViews();
+        return PersonETags.collection(eTag, PersonETags.cacheControl(maxAge)).body(findAll);
     }
 	
+	@GetMapping(params = "size")
+	public ResponseEntity<PersonPage<PersonView>> getPage(@RequestParam(name = "after", defaultValue = "0") Long after, @RequestParam("size") int size,
+			WebRequest request) {
+		if (size < 1) {
+			return ResponseEntity.badRequest().build();
+		}
+		
+		// every page is derived from the collection, so it is still current as long as the collection is
+		String eTag = PersonETags.of(service.collectionVersion());
+		if (request.checkNotModified(eTag)) {
+			return notModified();
+		}
+		
+		int limit = Math.min(size, maxPageSize);
+		List<PersonView> content = service.findViewsAfter(after, limit);
+		String next = content.size() < limit ? null : String.valueOf(content.get(content.size() - 1).getId());
+		return PersonETags.collection(eTag, PersonETags.cacheControl(maxAge)).body(new PersonPage<>(content, next));
+	}
+	
+	@GetMapping("/summary")
+	public ResponseEntity<PersonPage<PersonSummary>> getSummaryPage(@RequestParam(name = "after", defaultValue = "0") Long after,
+			@RequestParam(name = "size", defaultValue = "100") int size, WebRequest request) {
+		if (size < 1) {
+			return ResponseEntity.badRequest().build();
+		}
+		
+		String eTag = PersonETags.of(service.collectionVersion());
+		if (request.checkNotModified(eTag)) {
+			return notModified();
+		}
+		
+		int limit = Math.min(size, maxPageSize);
+		List<PersonSummary> content = service.findSummariesAfter(after, limit);
+		String next = content.size() < limit ? null : String.valueOf(content.get(content.size() - 1).getId());
+		return PersonETags.collection(eTag, PersonETags.cacheControl(maxAge)).body(new PersonPage<>(content, next));
+	}
+	
+	@GetMapping("/search")
+	public ResponseEntity<PersonPage<Person>> search(@RequestParam(name = "name", required = false) String name,
+			@RequestParam(name = "bornFrom", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate bornFrom,
+			@RequestParam(name = "bornTo", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate bornTo,
+			@RequestParam(name = "phone", required = false) String phone, @RequestParam(name = "sort", defaultValue = "id") String sort,
+			@RequestParam(name = "after", required = false) String after, @RequestParam(name = "size", defaultValue = "20") int size,
+			WebRequest request) {
+		if (size < 1) {
+			return ResponseEntity.badRequest().build();
+		}
+		
+		PersonSearch search;
+		try {
+			search = search(name, bornFrom, bornTo, phone, sort, after);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		
+		String eTag = PersonETags.of(service.collectionVersion());
+		if (request.checkNotModified(eTag)) {
+			return notModified();
+		}
+		
+		int limit = Math.min(size, maxPageSize);
+		List<Person> content = service.search(search, limit);
+		String next = content.size() < limit ? null : PersonSearchCursor.of(search.getSortBy(), content.get(content.size() - 1));
+		return PersonETags.collection(eTag, PersonETags.cacheControl(maxAge)).body(new PersonPage<>(content, next));
+	}
+	
+	/**
+	 * The search the query parameters of {@code /search} ask for, {@link IllegalArgumentException} when they do not make
+	 * one.
+	 */
+	static PersonSearch search(String name, LocalDate bornFrom, LocalDate bornTo, String phone, String sort, String after) {
+		PersonSearch search = new PersonSearch().name(name).bornFrom(bornFrom).bornTo(bornTo).phone(phone);
+		// sort=<id|name|birthday>[,asc|desc], a cursor only resumes the sort it was issued for
+		String[] order = sort.split(",");
+		Direction direction = order.length > 1 ? Direction.fromString(order[1]) : Direction.ASC;
+		search.sortBy(SortKey.valueOf(order[0].trim().toUpperCase(Locale.ROOT)), direction);
+		if (Objects.nonNull(after)) {
+			PersonSearchCursor.resume(search, after);
+		}
+		return search;
+	}
+	
+	@GetMapping(produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamAll(WebRequest request) {
+		String eTag = PersonETags.of(service.collectionVersion());
+		if (request.checkNotModified(eTag)) {
+			return notModified();
+		}
+		
+		ObjectWriter writer = objectMapper.writerFor(Person.class);
+		StreamingResponseBody body = out -> service.streamAll(person -> {
+			try {
+				out.write(writer.writeValueAsBytes(person));
+				out.write('\n');
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return PersonETags.collection(eTag, PersonETags.cacheControl(maxAge)).contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+				.body(body);
+	}
+	
+	private <T> ResponseEntity<T> notModified() {
+		// checkNotModified has already set the 304 status and the ETag on the response
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).cacheControl(PersonETags.cacheControl(maxAge)).build();
+	}
+	
 	@GetMapping("/{id}")
     public ResponseEntity<Person> getById(@PathVariable("id") Long id) {
         Optional<Person> found = service.findById(id);
         if (!found.isPresent()) {
         	return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(found.get());
+        return PersonETags.ok(found.get(), PersonETags.cacheControl(maxAge));
     }
     
 	@GetMapping("/nin/{nin}")
@@ -49,9 +228,17 @@ public class PersonResource {
         if (!found.isPresent()) {
         	return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(found.get());
+        return PersonETags.ok(found.get(), PersonETags.cacheControl(maxAge));
     }
 	
+	@PostMapping("/lookup")
+	public ResponseEntity<PersonLookupResult> lookup(@RequestBody PersonLookup lookup) {
+		if (lookup.size() > maxLookupSize || lookup.getIds().contains(null) || lookup.getNins().contains(null)) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(service.lookup(lookup));
+	}
+	
 	@PostMapping
     public ResponseEntity<Person> create(@Valid @RequestBody Person person) {
 		if (Objects.nonNull(person.getId())) {
@@ -59,25 +246,65 @@ public class PersonResource {
 		}
 		
 		Person created = service.save(person);
-		return ResponseEntity.status(HttpStatus.CREATED).body(created);        
+		return PersonETags.withETag(ResponseEntity.status(HttpStatus.CREATED), created).body(created);        
     }
+	
+	@PostMapping(path = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, APPLICATION_SMILE_VALUE,
+			APPLICATION_CBOR_VALUE })
+	public ResponseEntity<List<PersonBatchResult>> createBatch(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body)
+			throws IOException {
+		// an array or a sequence of values is read one element at a time, the request is never held in memory
+		List<PersonBatchResult> results = new ArrayList<>();
+		try (MappingIterator<Person> persons = mapperFor(contentType).readerFor(Person.class).readValues(body)) {
+			importer.importAll(persons, results::add);
+		} catch (JsonProcessingException | RuntimeJsonMappingException e) {
+			return malformedBatch(results, e);
+		} catch (RuntimeException e) {
+			// MappingIterator wraps parse errors that are not about mapping in a plain RuntimeException
+			if (!(e.getCause() instanceof JsonProcessingException)) {
+				throw e;
+			}
+			return malformedBatch(results, e.getCause());
+		}
+		return ResponseEntity.ok(results);
+	}
+	
+	private ResponseEntity<List<PersonBatchResult>> malformedBatch(List<PersonBatchResult> results, Throwable e) {
+		// every entry before the malformed one has its result, created ones included, and only those were read
+		String message = e instanceof JsonProcessingException ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage();
+		results.add(PersonBatchResult.failed(results.size(), Collections.singletonList(MALFORMED_BATCH + message)));
+		return ResponseEntity.badRequest().body(results);
+	}
+    
+	private ObjectMapper mapperFor(MediaType contentType) {
+		if (smileConverter.canRead(Person.class, contentType)) {
+			return smileConverter.getObjectMapper();
+		}
+		if (cborConverter.canRead(Person.class, contentType)) {
+			return cborConverter.getObjectMapper();
+		}
+		return objectMapper;
+	}
     
 	@PutMapping("/{id}")
-    public ResponseEntity<Person> update(@PathVariable("id") Long id, @Valid @RequestBody Person person) {
-		Optional<Person> existing = service.findById(id);
-		if (!existing.isPresent()) {
-			return ResponseEntity.notFound().build();
+    public ResponseEntity<Person> update(@PathVariable("id") Long id, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+    		@Valid @RequestBody Person person) {
+		Long expectedVersion = null;
+		if (Objects.nonNull(ifMatch)) {
+			try {
+				expectedVersion = PersonETags.parseVersion(ifMatch);
+			} catch (IllegalArgumentException e) {
+				return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+			}
 		}
 		
-		Person updated = existing.map(p -> {
-			p.setName(person.getName());
-			p.setBirthday(person.getBirthday());
-			p.setPhone(person.getPhone());
-			p.setNin(person.getNin());
-			return service.save(p);
-		}).get();
+		Optional<Person> updated = service.update(id, person, expectedVersion);
+		if (!updated.isPresent()) {
+			// RFC 7232 3.1: If-Match, * included, fails on a person that is not there
+			return ResponseEntity.status(Objects.nonNull(ifMatch) ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND).build();
+		}
         
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(updated);
+        return PersonETags.withETag(ResponseEntity.status(HttpStatus.ACCEPTED), updated.get()).body(updated.get());
     }
 
 	@DeleteMapping("/{id}")
@@ -85,5 +312,25 @@ public class PersonResource {
 		service.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+	
+	@ExceptionHandler({ JsonProcessingException.class, RuntimeJsonMappingException.class })
+	public ResponseEntity<Void> handleMalformedBody(Exception e) {
+		return ResponseEntity.badRequest().build();
+	}
+	
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<Void> handlePreconditionFailed(OptimisticLockingFailureException e) {
+		return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+	}
+	
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	public ResponseEntity<Void> handleConflict(DataIntegrityViolationException e) {
+		return ResponseEntity.status(HttpStatus.CONFLICT).build();
+	}
+	
+	@ExceptionHandler(QueryTimeoutException.class)
+	public ResponseEntity<Void> handleTimeout(QueryTimeoutException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+	}
 
 }
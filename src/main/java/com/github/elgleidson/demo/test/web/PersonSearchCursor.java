@@ -0,0 +1,47 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonSearch;
+import com.github.elgleidson.demo.test.service.PersonSearch.SortKey;
+
+/**
+ * Opaque search cursors: the sort key and the id of the last person of a page, the id breaking ties between equal keys.
+ */
+final class PersonSearchCursor {
+
+	private static final char SEPARATOR = ':';
+
+	private PersonSearchCursor() {
+	}
+
+	static String of(SortKey sortBy, Person last) {
+		Comparable<?> key = sortBy.keyOf(last);
+		String value = key == null ? String.valueOf(last.getId()) : key + String.valueOf(SEPARATOR) + last.getId();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Positions {@code search} after the cursor, throws {@link IllegalArgumentException} for a cursor that was not issued
+	 * for its sort.
+	 */
+	static PersonSearch resume(PersonSearch search, String cursor) {
+		String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		if (search.getSortBy() == SortKey.ID) {
+			return search.after(null, Long.valueOf(value));
+		}
+		// the key itself may contain the separator, the id never does
+		int separator = value.lastIndexOf(SEPARATOR);
+		if (separator < 0) {
+			throw new IllegalArgumentException("Not a " + search.getSortBy() + " cursor: " + cursor);
+		}
+		try {
+			return search.after(search.getSortBy().parseKey(value.substring(0, separator)), Long.valueOf(value.substring(separator + 1)));
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Not a " + search.getSortBy() + " cursor: " + cursor, e);
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.github.elgleidson.demo.test.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.github.elgleidson.demo.test.service.PersonTransfer;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Format;
+import com.github.elgleidson.demo.test.service.PersonTransfer.State;
+import com.github.elgleidson.demo.test.service.PersonTransfers;
+
+/**
+ * Bulk export and import of persons. Exports are written on the request thread rather than as an async
+ * {@code StreamingResponseBody}, which the async request timeout would cut off on a large table. Progress of both is
+ * under {@code /transfers}.
+ */
+@RestController
+@RequestMapping("/api/persons")
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class PersonTransferResource {
+
+	public static final String TEXT_CSV_VALUE = "text/csv";
+	public static final String TRANSFER_ID = "X-Transfer-Id";
+	public static final String TOTAL_COUNT = "X-Total-Count";
+
+	@Autowired
+	private PersonTransfers transfers;
+
+	@GetMapping("/export")
+	public void export(@RequestParam(name = "format", defaultValue = "csv") String format, HttpServletResponse response) throws IOException {
+		Optional<Format> exportFormat = Format.of(format);
+		if (!exportFormat.isPresent()) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+			return;
+		}
+
+		// the row count of the start lets clients show progress, rows created meanwhile may come on top
+		PersonTransfer transfer = transfers.startExport(exportFormat.get());
+		response.setContentType(exportFormat.get().getMediaType() + ";charset=UTF-8");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"persons." + exportFormat.get().name().toLowerCase(Locale.ROOT) + "\"");
+		response.setHeader(TRANSFER_ID, transfer.getId());
+		response.setHeader(TOTAL_COUNT, String.valueOf(transfer.getExpected()));
+		transfers.export(transfer, response.getOutputStream());
+	}
+
+	@PostMapping(path = "/import", consumes = { TEXT_CSV_VALUE, PersonResource.APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<PersonTransfer> importAll(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body)
+			throws IOException {
+		Format format = contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE)) ? Format.CSV : Format.NDJSON;
+		PersonTransfer transfer = transfers.importAll(format, body);
+		if (transfer.getState() == State.FAILED) {
+			return ResponseEntity.badRequest().header(TRANSFER_ID, transfer.getId()).body(transfer);
+		}
+		return ResponseEntity.ok().header(TRANSFER_ID, transfer.getId()).body(transfer);
+	}
+
+	@GetMapping("/transfers")
+	public ResponseEntity<List<PersonTransfer>> getTransfers() {
+		return ResponseEntity.ok(transfers.findAll());
+	}
+
+	@GetMapping("/transfers/{id}")
+	public ResponseEntity<PersonTransfer> getTransfer(@PathVariable("id") String id) {
+		return transfers.find(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+	}
+
+}
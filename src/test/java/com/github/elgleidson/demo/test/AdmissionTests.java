@@ -0,0 +1,45 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "demo.admission.read.rate=0.01", "demo.admission.read.burst=3" })
+public class AdmissionTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	private ResponseEntity<String> get(String uri, String apiKey) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-API-Key", apiKey);
+		return restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+	}
+
+	@Test
+	public void testPersonsAreLimitedPerClient() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(get("/api/persons", "noisy").getStatusCodeValue()).isEqualTo(200);
+		}
+		ResponseEntity<String> rejected = get("/api/persons/1", "noisy");
+		assertThat(rejected.getStatusCodeValue()).isEqualTo(429);
+		// a token every 100 seconds
+		assertThat(Integer.parseInt(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isBetween(90, 100);
+
+		assertThat(get("/api/persons", "quiet").getStatusCodeValue()).isEqualTo(200);
+		// only the persons API is limited
+		assertThat(get("/actuator/health", "noisy").getStatusCodeValue()).isEqualTo(200);
+	}
+
+}
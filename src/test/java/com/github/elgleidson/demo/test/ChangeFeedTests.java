@@ -0,0 +1,85 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonCollectionVersion;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonChangeLog;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "demo.persons.changes.stream.poll-interval=50ms")
+public class ChangeFeedTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private PersonService service;
+
+	@Autowired
+	private PersonChangeLog changeLog;
+
+	@Autowired
+	private PersonRepository repository;
+
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	@Test
+	public void testChangesAreStreamedAsServerSentEvents() throws Exception {
+		long since = changeLog.head();
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/persons/changes?since=" + since)
+				.openConnection();
+		connection.setRequestProperty(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+		connection.setReadTimeout(5000);
+		try (BufferedReader events = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+			assertThat(connection.getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+			Person saved = service.save(new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)).phone("1234567890").nin("AB000001C"));
+
+			assertThat(events.readLine()).isEqualTo(":subscribed");
+			assertThat(events.readLine()).isEmpty();
+			assertThat(events.readLine()).isEqualTo("id:" + (since + 1));
+			String data = events.readLine();
+			assertThat(data).startsWith("data:").contains("\"operation\":\"INSERT\"").contains("\"id\":" + saved.getId()).contains("AB000001C");
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void testCollectionVersionMovesWithEveryChange() {
+		Person first = service.save(new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)).nin("AB000002C"));
+		PersonCollectionVersion before = service.collectionVersion();
+
+		// the same count afterwards, and possibly a lower id than the highest one from another instance's block
+		service.deleteById(first.getId());
+		service.save(new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)).nin("AB000003C"));
+		PersonCollectionVersion after = service.collectionVersion();
+		assertThat(after.getCount()).isEqualTo(before.getCount());
+		assertThat(after.getChangeSeq()).isEqualTo(before.getChangeSeq() + 2);
+		assertThat(after.toString()).isNotEqualTo(before.toString());
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class CompressionTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private PersonRepository repository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	private ResponseEntity<byte[]> get(String uri, String acceptEncoding) {
+		return get(uri, MediaType.APPLICATION_JSON_VALUE, acceptEncoding);
+	}
+
+	private ResponseEntity<byte[]> get(String uri, String accept, String acceptEncoding) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(MediaType.parseMediaTypes(accept));
+		headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		return restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+	}
+
+	@Test
+	public void testLargeResponsesAreGzipped() {
+		String ndjson = IntStream.range(0, 100)
+				.mapToObj(i -> String.format("{\"name\":\"Agent Smith\",\"birthday\":\"1990-01-01\",\"phone\":\"1234567890\",\"nin\":\"AB%06dC\"}", i))
+				.collect(Collectors.joining("\n"));
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+		restTemplate.postForEntity("/api/persons/batch", new HttpEntity<>(ndjson, headers), String.class);
+
+		ResponseEntity<byte[]> gzipped = get("/api/persons", "gzip");
+		assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+
+		ResponseEntity<byte[]> identity = get("/api/persons", "identity");
+		assertThat(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(gzipped.getBody().length).isLessThan(identity.getBody().length / 4);
+
+		ResponseEntity<byte[]> streamed = get("/api/persons", "application/x-ndjson", "identity");
+		assertThat(new String(streamed.getBody()).split("\n")).hasSize(100);
+		assertThat(get("/api/persons", "application/x-ndjson", "gzip").getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+	}
+
+	@Test
+	public void testSmallResponsesAreNotCompressed() {
+		ResponseEntity<byte[]> response = get("/api/persons", "gzip");
+		assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+	}
+
+	@Test
+	public void testBinaryFormatsLeaveTheJsonMapperAlone() {
+		assertThat(objectMapper.getFactory().getFormatName()).isEqualTo(JsonFactory.FORMAT_NAME_JSON);
+
+		ResponseEntity<byte[]> response = get("/api/persons", "identity");
+		assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+		assertThat(new String(response.getBody())).isEqualTo("[]");
+	}
+
+}
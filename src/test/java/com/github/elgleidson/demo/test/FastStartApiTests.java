@@ -0,0 +1,80 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+
+/**
+ * The API under {@code faststart}, where beans are created on first use and so in another order than usual.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = "spring.datasource.url=jdbc:h2:mem:faststart-api;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("faststart")
+public class FastStartApiTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private PersonRepository repository;
+
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	private <T> ResponseEntity<T> get(String uri, MediaType accept, Class<T> type) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(List.of(accept));
+		return restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), type);
+	}
+
+	@Test
+	public void testJsonRoundTrip() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		String body = "{\"name\":\"Agent Smith\",\"birthday\":\"1990-05-17\",\"phone\":\"1234567890\",\"nin\":\"AB123456C\"}";
+		ResponseEntity<String> created = restTemplate.postForEntity("/api/persons", new HttpEntity<>(body, headers), String.class);
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(created.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+		assertThat(created.getBody()).startsWith("{").contains("\"birthday\":\"1990-05-17\"");
+
+		ResponseEntity<Person[]> all = get("/api/persons", MediaType.APPLICATION_JSON, Person[].class);
+		assertThat(all.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(all.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+		assertThat(all.getBody()).hasSize(1);
+		assertThat(all.getBody()[0].getName()).isEqualTo("Agent Smith");
+		assertThat(all.getBody()[0].getBirthday()).isEqualTo(LocalDate.of(1990, 5, 17));
+	}
+
+	@Test
+	public void testNdjsonExport() {
+		repository.save(new Person().name("Agent Smith").birthday(LocalDate.of(1990, 5, 17)));
+
+		ResponseEntity<String> export = get("/api/persons/export?format=ndjson", MediaType.ALL, String.class);
+		assertThat(export.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(export.getBody()).startsWith("{").contains("\"name\":\"Agent Smith\"");
+	}
+
+}
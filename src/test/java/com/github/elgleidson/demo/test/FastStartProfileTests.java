@@ -0,0 +1,81 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.config.LiquibaseFingerprintPostProcessor;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:faststart;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("faststart")
+public class FastStartProfileTests {
+
+	@Autowired
+	private ConfigurableApplicationContext context;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private LiquibaseProperties liquibaseProperties;
+
+	@Test
+	public void testCreatesBeansOnFirstUse() {
+		assertThat(context.getBeanFactory().containsSingleton("entityManagerFactory")).isTrue();
+		assertThat(context.getBeanFactory().containsSingleton("personResource")).isFalse();
+		assertThat(context.containsBean("h2Console")).isFalse();
+		assertThat(context.containsBean("mbeanExporter")).isFalse();
+		assertThat(context.containsBean("httpTraceEndpoint")).isFalse();
+
+		PersonService service = context.getBean(PersonService.class);
+		Person saved = service.save(new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)));
+		assertThat(service.findById(saved.getId())).isPresent();
+		service.deleteById(saved.getId());
+	}
+
+	@Test
+	public void testSkipsLiquibaseWhileTheChangelogIsUnchanged() throws Exception {
+		String stored = new JdbcTemplate(dataSource).queryForObject("select fingerprint from schema_fingerprint", String.class);
+		assertThat(stored).hasSize(64);
+		LiquibaseFingerprintPostProcessor postProcessor = new LiquibaseFingerprintPostProcessor(liquibaseProperties);
+
+		SpringLiquibase unchanged = liquibase();
+		postProcessor.postProcessBeforeInitialization(unchanged, "liquibase");
+		assertThat(unchanged).hasFieldOrPropertyWithValue("shouldRun", false);
+
+		LiquibaseProperties otherParameters = new LiquibaseProperties();
+		otherParameters.setChangeLog(liquibaseProperties.getChangeLog());
+		otherParameters.setParameters(Map.of("personIdBlockSize", "100"));
+		SpringLiquibase changed = liquibase();
+		new LiquibaseFingerprintPostProcessor(otherParameters).postProcessBeforeInitialization(changed, "liquibase");
+		assertThat(changed).hasFieldOrPropertyWithValue("shouldRun", true);
+	}
+
+	private SpringLiquibase liquibase() {
+		SpringLiquibase liquibase = new SpringLiquibase();
+		liquibase.setDataSource(dataSource);
+		liquibase.setChangeLog(liquibaseProperties.getChangeLog());
+		liquibase.setResourceLoader(new DefaultResourceLoader());
+		return liquibase;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.github.elgleidson.demo.test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsEndpointTests {
+	
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	public void testPrometheusEndpointExposesApiServiceJpaAndPoolMetrics() throws Exception {
+		mvc.perform(get("/api/persons/{id}", 1L)).andExpect(status().isNotFound());
+		
+		mvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+				.andExpect(content().string(containsString("uri=\"/api/persons/{id}\"")))
+				.andExpect(content().string(containsString("person_service_seconds{class=\"com.github.elgleidson.demo.test.service.PersonService\",exception=\"none\",method=\"findById\",quantile=\"0.99\"")))
+				.andExpect(content().string(containsString("hibernate_query_executions_total")))
+				.andExpect(content().string(containsString("hikaricp_connections_active")))
+				.andExpect(content().string(containsString("hikaricp_connections_pending")))
+				.andExpect(content().string(containsString("hikaricp_connections_acquire_seconds")))
+				.andExpect(content().string(containsString("cache_gets_total{cache=\"persons\"")));
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonService;
+import com.zaxxer.hikari.HikariDataSource;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "demo.datasource.h2.path=./target/h2/prod-profile-test")
+@ActiveProfiles({ "prod", "h2file" })
+public class ProdProfileTests {
+	
+	@Autowired
+	private DataSource dataSource;
+	
+	@Autowired
+	private PersonService service;
+
+	@Test
+	public void testRunsOnFileBackedH2WithTunedPool() throws Exception {
+		HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+		assertThat(hikari.getJdbcUrl()).startsWith("jdbc:h2:file:./target/h2/prod-profile-test;CACHE_SIZE=65536;WRITE_DELAY=500");
+		assertThat(hikari.getMaximumPoolSize()).isEqualTo(20);
+		
+		Person saved = service.save(new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)));
+		assertThat(service.findById(saved.getId())).isPresent();
+		service.deleteById(saved.getId());
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Evidence that the reactive mode keeps accepting requests past Tomcat's default cap of 200 worker threads while
+ * every JDBC call is stuck: the requests wait in the bounded JDBC queue instead of each holding a thread.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "spring.main.web-application-type=reactive",
+		"demo.reactive.jdbc.threads=10", "demo.reactive.jdbc.queue-capacity=1000" })
+public class ReactiveModeTests {
+
+	private static final int TOMCAT_MAX_THREADS = 200;
+	private static final int REQUESTS = 300;
+
+	@LocalServerPort
+	private int port;
+
+	@MockBean
+	private PersonService service;
+
+	@Autowired
+	private ThreadPoolExecutor jdbcExecutor;
+
+	@Test
+	public void testConcurrencyScalesPastTheServletThreadCap() throws Exception {
+		CountDownLatch slowDatabase = new CountDownLatch(1);
+		doAnswer(i -> {
+			slowDatabase.await(30, TimeUnit.SECONDS);
+			return Optional.of(new Person().id(i.<Long>getArgument(0)).name("Agent Smith").birthday(LocalDate.now().minusYears(30))
+					.phone("1234567890").nin("AB123456C").version(0L));
+		}).when(service).findById(anyLong());
+
+		WebClient client = WebClient.create("http://localhost:" + port);
+		Mono<List<HttpStatus>> responses = Flux.range(1, REQUESTS)
+				.flatMap(id -> client.get().uri("/api/persons/{id}", id).exchange().map(response -> response.statusCode()), REQUESTS)
+				.collectList()
+				.cache();
+		responses.subscribe();
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		while (jdbcExecutor.getActiveCount() + jdbcExecutor.getQueue().size() < REQUESTS && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+
+		try {
+			assertThat(jdbcExecutor.getActiveCount()).isEqualTo(10);
+			assertThat(jdbcExecutor.getQueue()).hasSize(REQUESTS - 10);
+			assertThat(ManagementFactory.getThreadMXBean().getThreadCount()).isLessThan(TOMCAT_MAX_THREADS);
+
+			// the event loop is still free to answer while all the JDBC threads are blocked
+			HttpStatus health = client.get().uri("/actuator/health").exchange().map(response -> response.statusCode())
+					.block(Duration.ofSeconds(5));
+			assertThat(health).isEqualTo(HttpStatus.OK);
+		} finally {
+			slowDatabase.countDown();
+		}
+
+		assertThat(responses.block(Duration.ofSeconds(30))).hasSize(REQUESTS).containsOnly(HttpStatus.OK);
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.github.elgleidson.demo.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = SecondLevelCacheTests.URL)
+public class SecondLevelCacheTests {
+
+	static final String URL = "spring.datasource.url=jdbc:h2:mem:l2cache;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+	@Autowired
+	private PersonService service;
+
+	@Autowired
+	private PersonRepository repository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+	@After
+	public void tearDown() {
+		instances.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Test
+	public void testFindByIdIsServedFromTheEntityRegion() {
+		Person saved = service.save(newPerson("AB000001C"));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long hits = statistics.getCacheRegionStatistics(Person.CACHE_REGION).getHitCount();
+
+		repository.findById(saved.getId());
+		assertThat(repository.findById(saved.getId())).map(Person::getName).contains("Agent Smith");
+
+		assertThat(statistics.getCacheRegionStatistics(Person.CACHE_REGION).getHitCount()).isGreaterThan(hits);
+		assertThat(meterRegistry.get("hibernate.cache.region.requests").tag("region", Person.CACHE_REGION).tag("result", "hit").functionCounter()
+				.count()).isGreaterThan(0);
+		assertThat(meterRegistry.get("hibernate.cache.region.size").tag("region", Person.CACHE_REGION).gauge().value()).isGreaterThan(0);
+	}
+
+	@Test
+	public void testFindByNinIsServedFromTheQueryRegion() {
+		service.save(newPerson("AB000002C"));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long hits = statistics.getCacheRegionStatistics(PersonRepository.BY_NIN_CACHE_REGION).getHitCount();
+
+		repository.findByNin("AB000002C");
+		assertThat(repository.findByNin("AB000002C")).isPresent();
+
+		assertThat(statistics.getCacheRegionStatistics(PersonRepository.BY_NIN_CACHE_REGION).getHitCount()).isGreaterThan(hits);
+	}
+
+	@Test
+	public void testChangesReachTheOtherInstanceThroughTheLocalChannel() {
+		ConfigurableApplicationContext other = instance();
+		assertChangesReach(other, service, () -> other.getBean(PersonService.class));
+	}
+
+	@Test
+	public void testChangesReachTheOtherInstanceThroughTheJdbcChannel() {
+		String[] jdbc = { "demo.persons.l2-cache.invalidation.channel=jdbc", "demo.persons.l2-cache.invalidation.poll-interval=50ms" };
+		ConfigurableApplicationContext first = instance(jdbc);
+		ConfigurableApplicationContext second = instance(jdbc);
+		assertChangesReach(second, first.getBean(PersonService.class), () -> second.getBean(PersonService.class));
+	}
+
+	private void assertChangesReach(ConfigurableApplicationContext other, PersonService writer, Supplier<PersonService> reader) {
+		Person saved = writer.save(newPerson("AB000003C"));
+		PersonRepository otherRepository = other.getBean(PersonRepository.class);
+		// cached by the other instance: its PersonCache, entity region and query region
+		assertThat(reader.get().findById(saved.getId())).isPresent();
+		assertThat(otherRepository.findById(saved.getId())).isPresent();
+		assertThat(otherRepository.findByNin("AB000003C")).isPresent();
+
+		writer.update(saved.getId(), newPerson("AB000003C").name("Agent Jones"), null);
+		awaitUntil(() -> reader.get().findById(saved.getId()).map(Person::getName).equals(Optional.of("Agent Jones")));
+		assertThat(otherRepository.findById(saved.getId())).map(Person::getName).contains("Agent Jones");
+		assertThat(otherRepository.findByNin("AB000003C")).map(Person::getName).contains("Agent Jones");
+
+		writer.deleteById(saved.getId());
+		awaitUntil(() -> !reader.get().findById(saved.getId()).isPresent());
+		assertThat(otherRepository.findByNin("AB000003C")).isEmpty();
+	}
+
+	private ConfigurableApplicationContext instance(String... properties) {
+		// arguments, default properties would lose against application.yml
+		List<String> args = new ArrayList<>(List.of("--" + URL, "--spring.jmx.enabled=false"));
+		Arrays.stream(properties).map(property -> "--" + property).forEach(args::add);
+		ConfigurableApplicationContext instance = new SpringApplicationBuilder(DemoTestApplication.class).web(WebApplicationType.NONE)
+				.run(args.toArray(new String[0]));
+		instances.add(instance);
+		return instance;
+	}
+
+	private static void awaitUntil(Supplier<Boolean> condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.get() && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		assertThat(condition.get()).isTrue();
+	}
+
+	private static Person newPerson(String nin) {
+		return new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)).phone("1234567890").nin(nin);
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.github.elgleidson.demo.test.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdmissionFilterTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private AdmissionFilter filter(int maxConcurrent, int maxTaggedClients) {
+		return new AdmissionFilter(new RateLimiter(1, 2, 100), new RateLimiter(1, 1, 100), "X-API-Key", maxConcurrent, meterRegistry,
+				maxTaggedClients);
+	}
+
+	private MockHttpServletResponse filter(AdmissionFilter filter, MockHttpServletRequest request, FilterChain chain) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private MockHttpServletResponse filter(AdmissionFilter filter, MockHttpServletRequest request) throws Exception {
+		return filter(filter, request, new MockFilterChain());
+	}
+
+	private static MockHttpServletRequest request(String method, String apiKey) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/persons");
+		if (apiKey != null) {
+			request.addHeader("X-API-Key", apiKey);
+		}
+		return request;
+	}
+
+	private double rejected(String client, String kind, String reason) {
+		return meterRegistry.get("http.admission.rejected").tag("client", client).tag("kind", kind).tag("reason", reason).counter().count();
+	}
+
+	@Test
+	public void testRejectsReadsAndWritesBeyondTheirOwnLimits() throws Exception {
+		AdmissionFilter filter = filter(10, 10);
+		assertThat(filter(filter, request("GET", "a")).getStatus()).isEqualTo(200);
+		assertThat(filter(filter, request("GET", "a")).getStatus()).isEqualTo(200);
+		MockHttpServletResponse rejected = filter(filter, request("GET", "a"));
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+		assertThat(filter(filter, request("POST", "a")).getStatus()).isEqualTo(200);
+		assertThat(filter(filter, request("DELETE", "a")).getStatus()).isEqualTo(429);
+
+		assertThat(rejected("a", "read", "rate")).isEqualTo(1);
+		assertThat(rejected("a", "write", "rate")).isEqualTo(1);
+	}
+
+	@Test
+	public void testTellsClientsApartByApiKeyOrElseRemoteAddress() throws Exception {
+		AdmissionFilter filter = filter(10, 10);
+		filter(filter, request("POST", "a"));
+		assertThat(filter(filter, request("POST", "a")).getStatus()).isEqualTo(429);
+		assertThat(filter(filter, request("POST", "b")).getStatus()).isEqualTo(200);
+		assertThat(filter(filter, request("POST", null)).getStatus()).isEqualTo(200);
+		assertThat(filter(filter, request("POST", null)).getStatus()).isEqualTo(429);
+
+		assertThat(rejected("127.0.0.1", "write", "rate")).isEqualTo(1);
+	}
+
+	@Test
+	public void testShedsRequestsBeyondTheConcurrencyLimit() throws Exception {
+		AdmissionFilter filter = filter(1, 10);
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<MockHttpServletResponse> first = executor.submit(() -> filter(filter, request("GET", "a"), (request, response) -> {
+			entered.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(meterRegistry.get("http.admission.in-flight").gauge().value()).isEqualTo(1);
+
+		MockHttpServletResponse shed = filter(filter, request("GET", "b"));
+		assertThat(shed.getStatus()).isEqualTo(503);
+		assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(rejected("b", "read", "concurrency")).isEqualTo(1);
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+		assertThat(meterRegistry.get("http.admission.in-flight").gauge().value()).isZero();
+		assertThat(filter(filter, request("GET", "b")).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void testCountsTheClientsBeyondTheTaggedOnesTogether() throws Exception {
+		AdmissionFilter filter = filter(10, 1);
+		for (String client : new String[] { "a", "b", "c" }) {
+			filter(filter, request("POST", client));
+			filter(filter, request("POST", client));
+		}
+		assertThat(rejected("a", "write", "rate")).isEqualTo(1);
+		assertThat(rejected(AdmissionFilter.OTHER_CLIENTS, "write", "rate")).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.github.elgleidson.demo.test.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	public void testAllowsTheBurstThenOneTokenPerInterval() {
+		RateLimiter limiter = new RateLimiter(10, 5, 100);
+		long now = 0;
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire("a", now)).isZero();
+		}
+		assertThat(limiter.tryAcquire("a", now)).isEqualTo(SECOND / 10);
+
+		assertThat(limiter.tryAcquire("a", now + SECOND / 10 - 1)).isEqualTo(1);
+		assertThat(limiter.tryAcquire("a", now + SECOND / 10)).isZero();
+		assertThat(limiter.tryAcquire("a", now + SECOND / 10)).isPositive();
+	}
+
+	@Test
+	public void testRefillsUpToTheBurstOnly() {
+		RateLimiter limiter = new RateLimiter(10, 5, 100);
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire("a", 0);
+		}
+		long later = 10 * SECOND;
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire("a", later)).isZero();
+		}
+		assertThat(limiter.tryAcquire("a", later)).isPositive();
+	}
+
+	@Test
+	public void testKeepsABucketPerClient() {
+		RateLimiter limiter = new RateLimiter(1, 1, 100);
+		assertThat(limiter.tryAcquire("a", 0)).isZero();
+		assertThat(limiter.tryAcquire("a", 0)).isPositive();
+		assertThat(limiter.tryAcquire("b", 0)).isZero();
+	}
+
+}
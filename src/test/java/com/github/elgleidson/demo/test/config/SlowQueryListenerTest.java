@@ -0,0 +1,72 @@
+package com.github.elgleidson.demo.test.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+
+public class SlowQueryListenerTest {
+	
+	private static final String QUERY = "select * from person where nin = ?";
+	
+	private Logger logger;
+	
+	private ListAppender<ILoggingEvent> appender;
+	
+	@Before
+	public void setUp() {
+		logger = (Logger) LoggerFactory.getLogger(SlowQueryListener.LOGGER);
+		appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender(appender);
+	}
+	
+	@After
+	public void tearDown() {
+		logger.detachAppender(appender);
+	}
+	
+	private ExecutionInfo execution(long elapsed) {
+		ExecutionInfo info = new ExecutionInfo();
+		info.setElapsedTime(elapsed);
+		return info;
+	}
+	
+	private List<QueryInfo> queries() {
+		return Collections.singletonList(new QueryInfo(QUERY));
+	}
+
+	@Test
+	public void testLogsQuerySlowerThanThreshold() {
+		new SlowQueryListener(100, 1.0).afterQuery(execution(150), queries());
+		
+		assertThat(appender.list).hasSize(1);
+		assertThat(appender.list.get(0).getFormattedMessage()).contains("150 ms").contains("0 bind parameters").contains(QUERY);
+	}
+	
+	@Test
+	public void testIgnoresQueryFasterThanThreshold() {
+		new SlowQueryListener(100, 1.0).afterQuery(execution(99), queries());
+		
+		assertThat(appender.list).isEmpty();
+	}
+	
+	@Test
+	public void testSampleRateZeroLogsNothing() {
+		new SlowQueryListener(100, 0.0).afterQuery(execution(150), queries());
+		
+		assertThat(appender.list).isEmpty();
+	}
+
+}
@@ -111,6 +111,12 @@ public class PersonTest {
 		assertThat(violations).extracting(ConstraintViolation::getMessage).allMatch(message -> message.equals("Phone must have 10 numbers"));
 	}
 	
+	@Test
+	public void testPhoneCanNotHaveNonAsciiDigits() {
+		Set<ConstraintViolation<Person>> violations = validator.validate(getPerson().phone("\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669\u0660"));
+		assertThat(violations).extracting(ConstraintViolation::getMessage).containsExactly("Phone must have 10 numbers");
+	}
+	
 	@Test
 	public void testPhoneCanNotHaveDashes() {
 		Set<ConstraintViolation<Person>> violations = validator.validate(getPerson().phone("20 1234-5678"));
@@ -170,4 +176,10 @@ public class PersonTest {
 		Set<ConstraintViolation<Person>> violations = validator.validate(getPerson().nin("AB12345567"));
 		assertThat(violations).extracting(ConstraintViolation::getMessage).allMatch(message -> message.equals("NIN must have 2 letters + 6 numbers + 1 letter"));
 	}
+	
+	@Test
+	public void testNinCanNotHaveLowerCaseLetters() {
+		Set<ConstraintViolation<Person>> violations = validator.validate(getPerson().nin("ab123456c"));
+		assertThat(violations).extracting(ConstraintViolation::getMessage).containsExactly("NIN must have 2 letters + 6 numbers + 1 letter");
+	}
 }
@@ -1,18 +1,32 @@
 package com.github.elgleidson.demo.test.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -71,5 +85,175 @@ public class PersonRepositoryTest {
 		assertThat(findByNin).isNotNull();
 		assertThat(findByNin).isNotPresent();
 	}
+	
+	@Test
+	public void testFindByIdGreaterThanReturnsNextKeysetPage() {
+		Person person1 = entityManager.persist(getPerson());
+		Person person2 = entityManager.persist(getPerson().nin("XY987654Z"));
+		Person person3 = entityManager.persist(getPerson().nin("CD654321E"));
+		
+		List<Person> first = repository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+		assertThat(first).containsExactly(person1, person2);
+		
+		List<Person> second = repository.findByIdGreaterThanOrderByIdAsc(person2.getId(), PageRequest.of(0, 2));
+		assertThat(second).containsExactly(person3);
+	}
+	
+	@Test
+	public void testFindByIdInAndNinInReturnOnlyExistingOnes() {
+		Person person1 = entityManager.persist(getPerson());
+		Person person2 = entityManager.persist(getPerson().nin("XY987654Z"));
+		entityManager.persist(getPerson().nin("CD654321E"));
+		
+		assertThat(repository.findByIdIn(Arrays.asList(person1.getId(), person2.getId(), -1L))).containsExactlyInAnyOrder(person1, person2);
+		assertThat(repository.findByNinIn(Arrays.asList(NIN, "XY987654Z", "EF111111G"))).containsExactlyInAnyOrder(person1, person2);
+	}
+	
+	@Test
+	public void testStreamAllOrderedById() {
+		Person person1 = entityManager.persist(getPerson());
+		Person person2 = entityManager.persist(getPerson().nin("XY987654Z"));
+		entityManager.flush();
+		
+		try (Stream<Person> persons = repository.streamAll()) {
+			assertThat(persons.map(Person::getId).collect(Collectors.toList())).containsExactly(person1.getId(), person2.getId());
+		}
+	}
+	
+	@Test
+	public void testSequenceIncrementsByIdBlockSize() {
+		Number increment = (Number) entityManager.getEntityManager()
+				.createNativeQuery("select increment from information_schema.sequences where sequence_name = 'SQ_PERSON'")
+				.getSingleResult();
+		assertThat(increment.intValue()).isEqualTo(50);
+	}
+	
+	@Test
+	public void testIdsAreAllocatedFromTheSameBlock() {
+		Person person1 = entityManager.persist(getPerson());
+		Person person2 = entityManager.persist(getPerson().nin("XY987654Z"));
+		
+		assertThat(person2.getId()).isEqualTo(person1.getId() + 1);
+	}
+	
+	@Test
+	public void testNinMustBeUnique() {
+		entityManager.persistAndFlush(getPerson());
+		
+		assertThatThrownBy(() -> entityManager.persistAndFlush(getPerson())).isInstanceOf(PersistenceException.class);
+	}
+	
+	@Test
+	public void testPersonsWithoutNinDoNotClash() {
+		entityManager.persistAndFlush(getPerson().nin(null));
+		entityManager.persistAndFlush(getPerson().nin(null));
+		
+		assertThat(repository.count()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testUpdateChangesRowAndIncrementsVersion() {
+		Person person = entityManager.persistAndFlush(getPerson());
+		entityManager.clear();
+		
+		int updated = repository.update(person.getId(), getPerson().name("Thomas Anderson").phone(null));
+		assertThat(updated).isEqualTo(1);
+		
+		Person found = entityManager.find(Person.class, person.getId());
+		assertThat(found.getName()).isEqualTo("Thomas Anderson");
+		assertThat(found.getPhone()).isNull();
+		assertThat(found.getVersion()).isEqualTo(person.getVersion() + 1);
+	}
+	
+	@Test
+	public void testUpdateWithoutMatchingRow() {
+		int updated = repository.update(1L, getPerson());
+		assertThat(updated).isEqualTo(0);
+	}
+	
+	private List<String> names(List<Person> persons) {
+		return persons.stream().map(Person::getName).collect(Collectors.toList());
+	}
+	
+	@Test
+	public void testSearchByNamePrefixIgnoresCase() {
+		entityManager.persist(getPerson().name("Thomas Anderson").nin(null));
+		entityManager.persist(getPerson().name("thomas_A").nin(null));
+		entityManager.persist(getPerson().name("Trinity").nin(null));
+		
+		assertThat(names(repository.search(PersonSpecifications.nameStartsWith("THOM"), Sort.by("id"), 10)))
+				.containsExactly("Thomas Anderson", "thomas_A");
+		// like wildcards in the prefix are taken literally
+		assertThat(names(repository.search(PersonSpecifications.nameStartsWith("thomas_"), Sort.by("id"), 10))).containsExactly("thomas_A");
+		assertThat(repository.search(PersonSpecifications.nameStartsWith("%"), Sort.by("id"), 10)).isEmpty();
+	}
+	
+	@Test
+	public void testSearchByBirthdayRangeAndPhone() {
+		entityManager.persist(getPerson().name("A").birthday(LocalDate.of(1980, 1, 1)).nin(null));
+		entityManager.persist(getPerson().name("B").birthday(LocalDate.of(1985, 6, 15)).nin(null));
+		entityManager.persist(getPerson().name("C").birthday(LocalDate.of(1985, 6, 15)).phone("9876543210").nin(null));
+		entityManager.persist(getPerson().name("D").birthday(LocalDate.of(1990, 12, 31)).nin(null));
+		
+		Specification<Person> range = PersonSpecifications.bornOnOrAfter(LocalDate.of(1985, 1, 1))
+				.and(PersonSpecifications.bornOnOrBefore(LocalDate.of(1990, 12, 31)));
+		assertThat(names(repository.search(range, Sort.by("birthday", "id"), 10))).containsExactly("B", "C", "D");
+		assertThat(names(repository.search(range.and(PersonSpecifications.phone("9876543210")), Sort.by("id"), 10))).containsExactly("C");
+	}
+	
+	@Test
+	public void testSearchKeysetPagesByNameThenIdDescending() {
+		entityManager.persist(getPerson().name("anna").nin(null));
+		Person anna = entityManager.persist(getPerson().name("Anna").nin(null));
+		entityManager.persist(getPerson().name("Bob").nin(null));
+		Sort sort = Sort.by(Sort.Order.desc("name").ignoreCase(), Sort.Order.desc("id"));
+		
+		List<Person> first = repository.search(null, sort, 2);
+		assertThat(names(first)).containsExactly("Bob", "Anna");
+		
+		Specification<Person> after = PersonSpecifications.after("name", true, Direction.DESC, "anna", anna.getId());
+		assertThat(names(repository.search(after, sort, 2))).containsExactly("anna");
+	}
+	
+	@Test
+	public void testSearchFiltersUseIndexes() {
+		assertThat(explain("select * from person where birthday between date '1980-01-01' and date '1990-01-01' order by birthday, id"))
+				.contains("IX_PERSON_BIRTHDAY");
+		assertThat(explain("select * from person where phone = '1234567890'")).contains("IX_PERSON_PHONE");
+	}
+	
+	private String explain(String sql) {
+		return String.valueOf(entityManager.getEntityManager().createNativeQuery("explain " + sql).getSingleResult());
+	}
+	
+	@Test
+	public void testProjectionsLeaveThePersistenceContextEmpty() {
+		Person person1 = entityManager.persist(getPerson());
+		Person person2 = entityManager.persist(getPerson().name("Thomas Anderson").nin("XY987654Z"));
+		entityManager.flush();
+		entityManager.clear();
+		
+		List<PersonView> views = repository.findAllViews();
+		assertThat(views).extracting(PersonView::getId).containsExactly(person1.getId(), person2.getId());
+		assertThat(views.get(0)).isEqualToComparingFieldByField(person1);
+		
+		assertThat(repository.findViewsAfter(person1.getId(), PageRequest.of(0, 10))).extracting(PersonView::getName).containsExactly("Thomas Anderson");
+		
+		List<PersonSummary> summaries = repository.findSummariesAfter(0L, PageRequest.of(0, 1));
+		assertThat(summaries).hasSize(1);
+		assertThat(summaries.get(0).getId()).isEqualTo(person1.getId());
+		assertThat(summaries.get(0).getName()).isEqualTo(NAME);
+		
+		assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+	}
+	
+	@Test
+	public void testUpdateIfVersionOnlyMatchesCurrentVersion() {
+		Person person = entityManager.persistAndFlush(getPerson());
+		entityManager.clear();
+		
+		assertThat(repository.updateIfVersion(person.getId(), person.getVersion() + 1, getPerson().name("Thomas Anderson"))).isEqualTo(0);
+		assertThat(repository.updateIfVersion(person.getId(), person.getVersion(), getPerson().name("Thomas Anderson"))).isEqualTo(1);
+	}
 
 }
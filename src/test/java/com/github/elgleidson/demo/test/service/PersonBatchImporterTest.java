@@ -0,0 +1,141 @@
+package com.github.elgleidson.demo.test.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.assertj.core.util.Lists;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonBatchResult.Status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "demo.persons.batch.chunk-size=2")
+public class PersonBatchImporterTest {
+	
+	private static final String NAME = "Agent Smith";
+	private static final LocalDate BIRTHDAY = LocalDate.now().minusYears(30);
+	private static final String PHONE = "1234567890";
+	
+	@Autowired
+	private PersonBatchImporter importer;
+	
+	@Autowired
+	private PersonRepository repository;
+	
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+	
+	private Person getPerson(String nin) {
+		return new Person().name(NAME).birthday(BIRTHDAY).phone(PHONE).nin(nin);
+	}
+	
+	private List<PersonBatchResult> importAll(Person... persons) {
+		List<PersonBatchResult> results = new ArrayList<>();
+		importer.importAll(Lists.list(persons).iterator(), results::add);
+		results.sort(Comparator.comparingInt(PersonBatchResult::getIndex));
+		return results;
+	}
+
+	@Test
+	public void testImportAllCreatesEveryChunk() {
+		List<PersonBatchResult> results = importAll(getPerson("AB123456C"), getPerson("XY987654Z"), getPerson("CD654321E"));
+		
+		assertThat(results).extracting(PersonBatchResult::getStatus).containsExactly(Status.CREATED, Status.CREATED, Status.CREATED);
+		assertThat(results).extracting(PersonBatchResult::getId).doesNotContainNull().doesNotHaveDuplicates();
+		assertThat(repository.count()).isEqualTo(3);
+	}
+	
+	@Test
+	public void testImportAllReportsInvalidEntries() {
+		List<PersonBatchResult> results = importAll(getPerson("AB123456C").name(null), getPerson("XY987654Z"));
+		
+		assertThat(results).extracting(PersonBatchResult::getStatus).containsExactly(Status.FAILED, Status.CREATED);
+		assertThat(results.get(0).getErrors()).containsExactly("Name cannot be empty or null");
+		assertThat(repository.count()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testImportAllReportsEveryViolation() {
+		List<PersonBatchResult> results = importAll(getPerson("AB12").name(null).phone("12345"));
+		
+		assertThat(results.get(0).getErrors()).containsExactly("NIN must have 2 letters + 6 numbers + 1 letter", "Name cannot be empty or null",
+				"Phone must have 10 numbers");
+	}
+	
+	@Test
+	public void testImportAllStopsAtTheFirstViolationWhenFailingFast() {
+		ReflectionTestUtils.setField(importer, "failFast", true);
+		importer.init();
+		try {
+			List<PersonBatchResult> results = importAll(getPerson("AB12").name(null).phone("12345"), getPerson("XY987654Z"));
+			
+			assertThat(results).extracting(PersonBatchResult::getStatus).containsExactly(Status.FAILED, Status.CREATED);
+			assertThat(results.get(0).getErrors()).hasSize(1);
+		} finally {
+			ReflectionTestUtils.setField(importer, "failFast", false);
+			importer.init();
+		}
+	}
+	
+	@Test
+	public void testImportAllRejectsEntriesWithId() {
+		Person person = getPerson("AB123456C");
+		ReflectionTestUtils.setField(person, "id", 1L);
+		
+		List<PersonBatchResult> results = importAll(person);
+		assertThat(results).extracting(PersonBatchResult::getStatus).containsExactly(Status.FAILED);
+		assertThat(results.get(0).getErrors()).containsExactly(PersonBatchImporter.ID_NOT_ALLOWED);
+	}
+	
+	@Test
+	public void testImportAllFallsBackToSingleInsertsOnDuplicateNin() {
+		List<PersonBatchResult> results = importAll(getPerson("AB123456C"), getPerson("AB123456C"), getPerson("XY987654Z"));
+		
+		assertThat(results).extracting(PersonBatchResult::getStatus).containsExactly(Status.CREATED, Status.FAILED, Status.CREATED);
+		assertThat(results.get(1).getErrors()).containsExactly(PersonBatchImporter.DUPLICATE_NIN);
+		assertThat(repository.count()).isEqualTo(2);
+	}
+
+	@Test
+	public void testImportAllCreatesTheEntriesBeforeUnreadableInput() {
+		Iterator<Person> persons = Lists.list(getPerson("AB123456C"), getPerson("XY987654Z"), getPerson("CD654321E")).iterator();
+		Iterator<Person> failing = new Iterator<Person>() {
+			
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+			
+			@Override
+			public Person next() {
+				if (!persons.hasNext()) {
+					throw new IllegalStateException("unreadable");
+				}
+				return persons.next();
+			}
+			
+		};
+		List<PersonBatchResult> results = new ArrayList<>();
+		
+		assertThatThrownBy(() -> importer.importAll(failing, results::add)).hasMessage("unreadable");
+		assertThat(results).extracting(PersonBatchResult::getStatus).containsExactly(Status.CREATED, Status.CREATED, Status.CREATED);
+		assertThat(repository.count()).isEqualTo(3);
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.github.elgleidson.demo.test.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonChange;
+import com.github.elgleidson.demo.test.domain.PersonChange.Operation;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class PersonChangeLogTest {
+
+	@Autowired
+	private PersonChangeLog changeLog;
+
+	@Autowired
+	private PersonService service;
+
+	@Autowired
+	private PersonRepository repository;
+
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	private static Person newPerson(String nin) {
+		return new Person().name("Agent Smith").birthday(LocalDate.now().minusYears(30)).phone("1234567890").nin(nin);
+	}
+
+	@Test
+	public void testReturnsTheLatestChangeOfEachPersonInCommitOrder() {
+		long since = changeLog.head();
+		Person smith = service.save(newPerson("AB000001C"));
+		Person jones = service.save(newPerson("AB000002C"));
+		service.update(smith.getId(), newPerson("AB000001C").name("Agent Brown"), null);
+		service.deleteById(jones.getId());
+
+		PersonChanges changes = changeLog.changesSince(since, 10).get();
+		assertThat(changes.getChanges()).extracting(PersonChange::getId).containsExactly(smith.getId(), jones.getId());
+		assertThat(changes.getChanges()).extracting(PersonChange::getOperation).containsExactly(Operation.UPDATE, Operation.DELETE);
+		assertThat(changes.getChanges().get(0).getPerson().getName()).isEqualTo("Agent Brown");
+		assertThat(changes.getChanges().get(1).getPerson()).isNull();
+		assertThat(changes.getChanges()).extracting(PersonChange::getSeq).isSorted();
+		assertThat(changes.getNext()).isEqualTo(since + 4).isEqualTo(changeLog.head());
+		assertThat(changes.isMore()).isFalse();
+
+		assertThat(changeLog.changesSince(changes.getNext(), 10).get().getChanges()).isEmpty();
+	}
+
+	@Test
+	public void testPagesFromToken() {
+		long since = changeLog.head();
+		List<Long> ids = service.createAll(Arrays.asList(newPerson("AB000001C"), newPerson("AB000002C"), newPerson("AB000003C"))).stream()
+				.map(Person::getId).collect(Collectors.toList());
+
+		PersonChanges first = changeLog.changesSince(since, 2).get();
+		assertThat(first.getChanges()).extracting(PersonChange::getId).containsExactlyElementsOf(ids.subList(0, 2));
+		assertThat(first.getChanges()).extracting(PersonChange::getOperation).containsOnly(Operation.INSERT);
+		assertThat(first.isMore()).isTrue();
+		assertThat(first.getNext()).isEqualTo(first.getChanges().get(1).getSeq());
+
+		PersonChanges second = changeLog.changesSince(first.getNext(), 2).get();
+		assertThat(second.getChanges()).extracting(PersonChange::getId).containsExactly(ids.get(2));
+		assertThat(second.isMore()).isFalse();
+	}
+
+	@Test
+	public void testRolledBackChangesAreNotRecorded() {
+		service.save(newPerson("AB000001C"));
+		long head = changeLog.head();
+
+		assertThatThrownBy(() -> service.save(newPerson("AB000001C"))).isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(changeLog.head()).isEqualTo(head);
+		assertThatThrownBy(() -> changeLog.record(Operation.DELETE, Arrays.asList(1L))).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testRefusesTokensFromBeforeTheDeletedChanges() throws InterruptedException {
+		long since = changeLog.head();
+		service.save(newPerson("AB000001C"));
+		assertThat(changeLog.changesSince(since + 2, 10)).isEmpty();
+
+		PersonChangeLog target = AopTestUtils.getTargetObject(changeLog);
+		Duration retention = (Duration) ReflectionTestUtils.getField(target, "retention");
+		ReflectionTestUtils.setField(target, "retention", Duration.ZERO);
+		try {
+			Thread.sleep(10);
+			changeLog.prune();
+		} finally {
+			ReflectionTestUtils.setField(target, "retention", retention);
+		}
+
+		assertThat(changeLog.changesSince(since, 10)).isEmpty();
+		assertThat(changeLog.isAvailable(since)).isFalse();
+		assertThat(changeLog.isAvailable(changeLog.head())).isTrue();
+		assertThat(changeLog.changesSince(changeLog.head(), 10).get().getChanges()).isEmpty();
+	}
+
+	@Test
+	public void testUpgradeWithPersonsRefusesTheFirstToken() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:change-log-upgrade;DB_CLOSE_DELAY=-1", "demo", "")) {
+			Liquibase liquibase = new Liquibase("db/changelog/db.changelog-master.xml", new ClassLoaderResourceAccessor(),
+					new JdbcConnection(connection));
+			// up to the sequence row (the postgres-only changeset is not counted), on a database that already has a person
+			liquibase.update(12, "");
+			connection.createStatement().executeUpdate("insert into person (id, name, birthday) values (1, 'Agent Smith', date '1990-05-17')");
+			// Liquibase turned auto-commit off, the person has to be there for the next changesets
+			connection.commit();
+			liquibase.update(new Contexts());
+
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+			assertThat(jdbcTemplate.queryForObject("select pruned_seq from person_change_sequence", Long.class)).isEqualTo(1);
+			assertThat(jdbcTemplate.queryForObject("select last_seq from person_change_sequence", Long.class)).isEqualTo(1);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.github.elgleidson.demo.test.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "demo.persons.lookup.batcher.enabled=true", "demo.persons.lookup.batcher.max-delay=100ms",
+		"demo.persons.lookup.batcher.max-batch=3" })
+public class PersonLookupBatcherTest {
+
+	@Autowired
+	private PersonService service;
+
+	@MockBean
+	private PersonRepository repository;
+
+	@Autowired
+	private PersonCache cache;
+
+	@Before
+	public void setUp() {
+		cache.clear();
+	}
+
+	@Test
+	public void testSingleLookupsWithinTheDelayShareOneQuery() throws Exception {
+		doAnswer(i -> {
+			Collection<Long> ids = i.getArgument(0);
+			return ids.stream().filter(id -> id != 2L).map(id -> new Person().id(id).name("Person " + id).birthday(LocalDate.now()))
+					.collect(Collectors.toList());
+		}).when(repository).findByIdIn(Mockito.anyCollection());
+
+		List<CompletableFuture<Optional<Person>>> found = new ArrayList<>();
+		for (long id = 1; id <= 2; id++) {
+			long each = id;
+			found.add(CompletableFuture.supplyAsync(() -> service.findById(each)));
+		}
+
+		assertThat(found.get(0).get(5, TimeUnit.SECONDS).map(Person::getName)).contains("Person 1");
+		assertThat(found.get(1).get(5, TimeUnit.SECONDS)).isEmpty();
+		verify(repository, times(1)).findByIdIn(Mockito.anyCollection());
+		verify(repository, times(0)).findById(Mockito.anyLong());
+	}
+
+	@Test
+	public void testFullBatchesDoNotWaitForTheDelay() throws Exception {
+		doAnswer(i -> {
+			Collection<String> nins = i.getArgument(0);
+			return nins.stream().map(nin -> new Person().id(1L).name("Agent Smith").nin(nin)).collect(Collectors.toList());
+		}).when(repository).findByNinIn(Mockito.anyCollection());
+
+		List<CompletableFuture<Optional<Person>>> found = new ArrayList<>();
+		for (String nin : new String[] { "AB123456C", "AB123457C", "AB123458C" }) {
+			found.add(CompletableFuture.supplyAsync(() -> service.findByNin(nin)));
+		}
+
+		for (CompletableFuture<Optional<Person>> each : found) {
+			assertThat(each.get(5, TimeUnit.SECONDS)).isPresent();
+		}
+		verify(repository, times(1)).findByNinIn(Mockito.anyCollection());
+	}
+
+	@Test
+	public void testEveryCallerOfTheBatchGetsTheError() {
+		doAnswer(i -> {
+			throw new QueryTimeoutException("Too slow");
+		}).when(repository).findByIdIn(Mockito.anyCollection());
+
+		assertThatThrownBy(() -> service.findById(7L)).isInstanceOf(QueryTimeoutException.class).hasMessage("Too slow");
+	}
+
+}
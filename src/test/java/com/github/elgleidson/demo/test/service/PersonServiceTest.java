@@ -1,27 +1,50 @@
 package com.github.elgleidson.demo.test.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.assertj.core.util.Lists;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
 import com.github.elgleidson.demo.test.repository.PersonRepository;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class PersonServiceTest {
@@ -38,6 +61,17 @@ public class PersonServiceTest {
 	@MockBean
 	private PersonRepository repository;
 	
+	@Autowired
+	private PersonCache cache;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Before
+	public void setUp() {
+		cache.clear();
+	}
+	
 	private Person getPerson() {
 		Person person = new Person().name(NAME).birthday(BIRTHDAY).phone(PHONE).nin(NIN);
 		ReflectionTestUtils.setField(person, "id", ID);
@@ -45,33 +79,52 @@ public class PersonServiceTest {
 	}
 
 	@Test
-	public void testFindAllWithoutRegisters() {
-		List<Person> findAll = service.findAll();
+	public void testFindAllViewsWithoutRegisters() {
+		List<PersonView> findAll = service.findAllViews();
 		assertThat(findAll).isEmpty();
 	}
 
 	@Test
-	public void testFindAllWithOneRegister() {
-		Person person = getPerson();
-		doAnswer(i -> Lists.list(person)).when(repository).findAll();
+	public void testFindAllViewsWithSomeRegisters() {
+		PersonView view1 = view(ID);
+		PersonView view2 = view(ID+1);
+		doAnswer(i -> Lists.list(view1, view2)).when(repository).findAllViews();
 		
-		List<Person> findAll = service.findAll();
-		assertThat(findAll).isNotEmpty();
-		assertThat(findAll).hasSize(1);
-		assertThat(findAll).containsOnly(person);
+		List<PersonView> findAll = service.findAllViews();
+		assertThat(findAll).containsExactly(view1, view2);
 	}
 	
 	@Test
-	public void testFindAllWithSomeRegisters() {
+	public void testFindViewsAfterUsesKeysetPage() {
+		PersonView view = view(ID);
+		doAnswer(i -> Lists.list(view)).when(repository).findViewsAfter(ID-1, PageRequest.of(0, 10));
+		
+		List<PersonView> page = service.findViewsAfter(ID-1, 10);
+		assertThat(page).containsExactly(view);
+	}
+	
+	@Test
+	public void testFindSummariesAfterUsesKeysetPage() {
+		PersonSummary summary = Mockito.mock(PersonSummary.class);
+		doAnswer(i -> Lists.list(summary)).when(repository).findSummariesAfter(ID-1, PageRequest.of(0, 10));
+		
+		List<PersonSummary> page = service.findSummariesAfter(ID-1, 10);
+		assertThat(page).containsExactly(summary);
+	}
+	
+	private PersonView view(Long id) {
+		return new PersonView(id, NAME, BIRTHDAY, PHONE, NIN);
+	}
+	
+	@Test
+	public void testStreamAllHandsOverEveryRow() {
 		Person person1 = getPerson();
 		Person person2 = getPerson();
-		Person person3 = getPerson();
-		doAnswer(i -> Lists.list(person1, person2, person3)).when(repository).findAll();
+		doAnswer(i -> Stream.of(person1, person2)).when(repository).streamAll();
 		
-		List<Person> findAll = service.findAll();
-		assertThat(findAll).isNotEmpty();
-		assertThat(findAll).hasSize(3);
-		assertThat(findAll).containsExactlyInAnyOrder(person1, person2, person3);
+		List<Person> streamed = new ArrayList<>();
+		service.streamAll(streamed::add);
+		assertThat(streamed).containsExactly(person1, person2);
 	}
 	
 	@Test
@@ -211,4 +264,269 @@ public class PersonServiceTest {
 		service.deleteById(ID+1);
 		assertThat(persons).containsOnly(person);
 	}
+	
+	@Test
+	public void testFindByIdIsServedFromCache() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findById(ID);
+		
+		Optional<Person> first = service.findById(ID);
+		Optional<Person> second = service.findById(ID);
+		assertThat(second).isPresent();
+		assertThat(second.get().getNin()).isEqualTo(NIN);
+		assertThat(second.get()).isNotSameAs(first.get());
+		verify(repository, times(1)).findById(ID);
+	}
+	
+	@Test
+	public void testFindByNinIsServedFromCache() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findByNin(NIN);
+		
+		service.findByNin(NIN);
+		Optional<Person> findByNin = service.findByNin(NIN);
+		assertThat(findByNin).isPresent();
+		assertThat(findByNin.get().getId()).isEqualTo(ID);
+		verify(repository, times(1)).findByNin(NIN);
+	}
+	
+	@Test
+	public void testSaveEvictsCachedPerson() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findById(ID);
+		doReturn(person).when(repository).save(Mockito.any());
+		
+		service.findById(ID);
+		service.save(getPerson().name("Thomas Anderson"));
+		service.findById(ID);
+		verify(repository, times(2)).findById(ID);
+	}
+	
+	@Test
+	public void testDeleteEvictsCachedPerson() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findById(ID);
+		
+		service.findById(ID);
+		doAnswer(i -> Optional.empty()).when(repository).findById(ID);
+		service.deleteById(ID);
+		assertThat(service.findById(ID)).isNotPresent();
+	}
+	
+	@Test
+	public void testFindByNinAfterNinChanged() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findByNin(NIN);
+		service.findByNin(NIN);
+		
+		Person updated = getPerson().nin("XY987654Z");
+		doReturn(updated).when(repository).save(Mockito.any());
+		doAnswer(i -> Optional.of(updated)).when(repository).findById(ID);
+		doAnswer(i -> Optional.empty()).when(repository).findByNin(NIN);
+		service.save(updated);
+		
+		assertThat(service.findByNin(NIN)).isNotPresent();
+		assertThat(service.findById(ID).get().getNin()).isEqualTo("XY987654Z");
+	}
+	
+	@Test
+	public void testCacheStatsCountHitsAndMisses() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findById(ID);
+		long hits = cache.stats().get(PersonCache.BY_ID).hitCount();
+		long misses = cache.stats().get(PersonCache.BY_ID).missCount();
+		
+		service.findById(ID);
+		service.findById(ID);
+		assertThat(cache.stats().get(PersonCache.BY_ID).hitCount()).isEqualTo(hits + 1);
+		assertThat(cache.stats().get(PersonCache.BY_ID).missCount()).isEqualTo(misses + 1);
+	}
+	
+	@Test
+	public void testUpdateExistingPerson() {
+		doReturn(1).when(repository).update(Mockito.eq(ID), Mockito.any());
+		
+		Optional<Person> updated = service.update(ID, new Person().name("Thomas Anderson").birthday(BIRTHDAY), null);
+		assertThat(updated).isPresent();
+		assertThat(updated.get().getId()).isEqualTo(ID);
+		assertThat(updated.get().getName()).isEqualTo("Thomas Anderson");
+		verify(repository, times(0)).findById(ID);
+	}
+	
+	@Test
+	public void testUpdateWithoutVersionReadsBackTheNewOne() {
+		doReturn(1).when(repository).update(Mockito.eq(ID), Mockito.any());
+		doReturn(Optional.of(5L)).when(repository).findVersionById(ID);
+		
+		Optional<Person> updated = service.update(ID, getPerson(), null);
+		assertThat(updated.get().getVersion()).isEqualTo(5L);
+	}
+	
+	@Test
+	public void testUpdateNonExistingPerson() {
+		Optional<Person> updated = service.update(ID, getPerson(), null);
+		assertThat(updated).isNotPresent();
+	}
+	
+	@Test
+	public void testUpdateWithMatchingVersion() {
+		doReturn(1).when(repository).updateIfVersion(Mockito.eq(ID), Mockito.eq(3L), Mockito.any());
+		
+		Optional<Person> updated = service.update(ID, getPerson(), 3L);
+		assertThat(updated).isPresent();
+		assertThat(updated.get().getVersion()).isEqualTo(4L);
+	}
+	
+	@Test
+	public void testUpdateWithStaleVersion() {
+		doReturn(true).when(repository).existsById(ID);
+		
+		assertThatThrownBy(() -> service.update(ID, getPerson(), 3L)).isInstanceOf(OptimisticLockingFailureException.class);
+	}
+	
+	@Test
+	public void testUpdateWithVersionOfNonExistingPerson() {
+		Optional<Person> updated = service.update(ID, getPerson(), 3L);
+		assertThat(updated).isNotPresent();
+	}
+	
+	@Test
+	public void testUpdateEvictsCachedPerson() {
+		Person person = getPerson();
+		doAnswer(i -> Optional.of(person)).when(repository).findById(ID);
+		doReturn(1).when(repository).update(Mockito.eq(ID), Mockito.any());
+		
+		service.findById(ID);
+		service.update(ID, getPerson().name("Thomas Anderson"), null);
+		service.findById(ID);
+		verify(repository, times(2)).findById(ID);
+	}
+	
+	@Test
+	public void testRowReadBeforeAnEvictionIsNotCached() {
+		doAnswer(i -> {
+			// the change commits while the old row is on its way to the cache
+			cache.evict(ID);
+			return Optional.of(getPerson());
+		}).when(repository).findById(ID);
+		
+		assertThat(service.findById(ID)).isPresent();
+		assertThat(cache.get(ID)).isNull();
+	}
+	
+	@Test
+	public void testFindByIdJoinedAfterAnEvictionReadsAgain() throws Exception {
+		CountDownLatch querying = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(i -> {
+			querying.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return Optional.of(getPerson());
+		}).doAnswer(i -> Optional.of(getPerson().name("Thomas Anderson"))).when(repository).findById(ID);
+		Counter coalesced = meterRegistry.get("person.lookups.coalesced").tag("by", "id").counter();
+		double before = coalesced.count();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Optional<Person>> leader = executor.submit(() -> service.findById(ID));
+			assertThat(querying.await(5, TimeUnit.SECONDS)).isTrue();
+			cache.evict(ID);
+			Future<Optional<Person>> follower = executor.submit(() -> service.findById(ID));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (coalesced.count() == before && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+			
+			assertThat(leader.get(5, TimeUnit.SECONDS).get().getName()).isEqualTo(NAME);
+			assertThat(follower.get(5, TimeUnit.SECONDS).get().getName()).isEqualTo("Thomas Anderson");
+			assertThat(cache.get(ID).getName()).isEqualTo("Thomas Anderson");
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testConcurrentFindByIdSharesOneQuery() throws Exception {
+		Person person = getPerson();
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(i -> {
+			release.await(5, TimeUnit.SECONDS);
+			return Optional.of(person);
+		}).when(repository).findById(ID);
+		
+		List<Future<Optional<Person>>> found = concurrently(4, () -> service.findById(ID), "id", release);
+		for (Future<Optional<Person>> each : found) {
+			assertThat(each.get(5, TimeUnit.SECONDS).map(Person::getName)).contains(NAME);
+		}
+		verify(repository, times(1)).findById(ID);
+	}
+	
+	@Test
+	public void testConcurrentFindByNinSharesTheError() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(i -> {
+			release.await(5, TimeUnit.SECONDS);
+			throw new QueryTimeoutException("Too slow");
+		}).when(repository).findByNin(NIN);
+		
+		List<Future<Optional<Person>>> found = concurrently(4, () -> service.findByNin(NIN), "nin", release);
+		for (Future<Optional<Person>> each : found) {
+			assertThatThrownBy(() -> each.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+		}
+		verify(repository, times(1)).findByNin(NIN);
+	}
+	
+	private List<Future<Optional<Person>>> concurrently(int callers, Callable<Optional<Person>> lookup, String by, CountDownLatch release)
+			throws InterruptedException {
+		Counter coalesced = meterRegistry.get("person.lookups.coalesced").tag("by", by).counter();
+		double before = coalesced.count();
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		try {
+			List<Future<Optional<Person>>> found = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				found.add(executor.submit(lookup));
+			}
+			// the query is held until every other caller waits for it
+			long deadline = System.currentTimeMillis() + 5000;
+			while (coalesced.count() - before < callers - 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			assertThat(coalesced.count() - before).isEqualTo(callers - 1);
+			return found;
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testLookupServesCachedAndQueriesTheRestInChunks() {
+		PersonService target = AopTestUtils.getTargetObject(service);
+		ReflectionTestUtils.setField(target, "lookupChunkSize", 2);
+		doAnswer(i -> Optional.of(getPerson())).when(repository).findById(ID);
+		service.findById(ID);
+		doAnswer(i -> {
+			Collection<Long> ids = i.getArgument(0);
+			return ids.stream().filter(id -> id < 4).map(id -> getPerson().id(id).nin(null)).collect(Collectors.toList());
+		}).when(repository).findByIdIn(Mockito.anyCollection());
+		doAnswer(i -> Lists.list()).when(repository).findByNinIn(Mockito.anyCollection());
+		
+		PersonLookupResult result = service.lookup(new PersonLookup().ids(Lists.list(3L, ID, 2L, 4L, 3L)).nins(Lists.list(NIN, "XY987654Z")));
+		
+		assertThat(result.getIds()).containsOnlyKeys(3L, ID, 2L);
+		assertThat(result.getIds().keySet()).containsExactly(3L, ID, 2L);
+		assertThat(result.getMissingIds()).containsExactly(4L);
+		assertThat(result.getNins().get(NIN).getId()).isEqualTo(ID);
+		assertThat(result.getMissingNins()).containsExactly("XY987654Z");
+		verify(repository).findByIdIn(Lists.list(3L, 2L));
+		verify(repository).findByIdIn(Lists.list(4L));
+		verify(repository).findByNinIn(Lists.list("XY987654Z"));
+		// what the lookup found is cached like single lookups
+		service.findById(2L);
+		verify(repository, times(0)).findById(2L);
+		ReflectionTestUtils.setField(target, "lookupChunkSize", 500);
+	}
 }
+
@@ -0,0 +1,144 @@
+package com.github.elgleidson.demo.test.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Format;
+import com.github.elgleidson.demo.test.service.PersonTransfer.State;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "demo.persons.batch.chunk-size=2", "demo.persons.export.fetch-size=2", "demo.persons.export.buffer-size=16B" })
+public class PersonTransfersTest {
+	
+	private static final LocalDate BIRTHDAY = LocalDate.of(1990, 5, 17);
+	
+	@Autowired
+	private PersonTransfers transfers;
+	
+	@Autowired
+	private PersonService service;
+	
+	@Autowired
+	private PersonRepository repository;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+	
+	private String export(Format format) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PersonTransfer transfer = transfers.startExport(format);
+		transfers.export(transfer, out);
+		assertThat(transfer.getState()).isEqualTo(State.COMPLETED);
+		assertThat(transfer.getProcessed()).isEqualTo(transfer.getExpected());
+		return out.toString(StandardCharsets.UTF_8.name());
+	}
+	
+	private PersonTransfer importAll(Format format, String content) throws Exception {
+		return transfers.importAll(format, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testExportCsvQuotesWhereNeeded() throws Exception {
+		Person smith = service.save(new Person().name("Smith, \"Agent\"").birthday(BIRTHDAY).phone("1234567890").nin("AB123456C"));
+		Person neo = service.save(new Person().name("Neo").birthday(BIRTHDAY));
+		
+		assertThat(export(Format.CSV)).isEqualTo("id,name,birthday,phone,nin\n"
+				+ smith.getId() + ",\"Smith, \"\"Agent\"\"\",1990-05-17,1234567890,AB123456C\n"
+				+ neo.getId() + ",Neo,1990-05-17,,\n");
+	}
+	
+	@Test
+	public void testExportNdjsonWritesPersonsAsTheirJson() throws Exception {
+		Person smith = service.save(new Person().name("Agent Smith").birthday(BIRTHDAY).phone("1234567890").nin("AB123456C"));
+		Person neo = service.save(new Person().name("Neo").birthday(BIRTHDAY));
+		
+		String[] lines = export(Format.NDJSON).split("\n");
+		assertThat(lines).containsExactly(objectMapper.writeValueAsString(smith), objectMapper.writeValueAsString(neo));
+	}
+	
+	@Test
+	public void testExportedCsvImportsBackAsNewPersons() throws Exception {
+		service.save(new Person().name("Smith, \"Agent\"").birthday(BIRTHDAY).phone("1234567890").nin("AB123456C"));
+		service.save(new Person().name("Multi\nLine").birthday(BIRTHDAY));
+		service.save(new Person().name("Neo").birthday(BIRTHDAY).nin("XY987654Z"));
+		String csv = export(Format.CSV);
+		repository.deleteAll();
+		
+		PersonTransfer transfer = importAll(Format.CSV, csv);
+		
+		assertThat(transfer.getState()).isEqualTo(State.COMPLETED);
+		assertThat(transfer.getCreated()).isEqualTo(3);
+		assertThat(transfer.getFailed()).isZero();
+		assertThat(repository.findAll()).extracting(Person::getName).containsExactlyInAnyOrder("Smith, \"Agent\"", "Multi\nLine", "Neo");
+	}
+	
+	@Test
+	public void testExportedNdjsonImportsBackAsNewPersons() throws Exception {
+		Person smith = service.save(new Person().name("Agent Smith").birthday(BIRTHDAY).phone("1234567890").nin("AB123456C"));
+		service.save(new Person().name("Neo").birthday(BIRTHDAY));
+		String ndjson = export(Format.NDJSON);
+		repository.deleteAll();
+		
+		PersonTransfer transfer = importAll(Format.NDJSON, ndjson);
+		
+		assertThat(transfer.getState()).isEqualTo(State.COMPLETED);
+		assertThat(transfer.getCreated()).isEqualTo(2);
+		assertThat(transfer.getFailed()).isZero();
+		assertThat(repository.findAll()).extracting(Person::getName).containsExactlyInAnyOrder("Agent Smith", "Neo");
+		assertThat(repository.findByNin("AB123456C").get().getId()).isNotEqualTo(smith.getId());
+	}
+	
+	@Test
+	public void testImportCountsInvalidEntries() throws Exception {
+		PersonTransfer transfer = importAll(Format.CSV, "\uFEFFName,Birthday,NIN\r\nAgent Smith,1990-05-17,AB123456C\r\n,1990-05-17,\r\n\r\nNeo,1990-05-17,ab\r\n");
+		
+		assertThat(transfer.getState()).isEqualTo(State.COMPLETED);
+		assertThat(transfer.getProcessed()).isEqualTo(3);
+		assertThat(transfer.getCreated()).isEqualTo(1);
+		assertThat(transfer.getFailed()).isEqualTo(2);
+		assertThat(transfer.getFailures()).extracting(PersonBatchResult::getIndex).containsExactly(1, 2);
+		assertThat(transfers.find(transfer.getId())).containsSame(transfer);
+	}
+	
+	@Test
+	public void testImportStopsAtMalformedInputKeepingEarlierEntries() throws Exception {
+		PersonTransfer transfer = importAll(Format.NDJSON, "{\"name\":\"Agent Smith\",\"birthday\":\"1990-05-17\"}\n"
+				+ "{\"name\":\"Neo\",\"birthday\":\"1990-05-17\"}\n"
+				+ "{\"name\":\"Trinity\",\"birthday\":\"1990-05-17\"}\n"
+				+ "{\"name\":");
+		
+		assertThat(transfer.getState()).isEqualTo(State.FAILED);
+		assertThat(transfer.getError()).isNotBlank();
+		assertThat(transfer.getCreated()).isEqualTo(3);
+		assertThat(repository.findAll()).extracting(Person::getName).containsExactlyInAnyOrder("Agent Smith", "Neo", "Trinity");
+	}
+	
+	@Test
+	public void testImportRejectsCsvWithoutHeader() throws Exception {
+		PersonTransfer transfer = importAll(Format.CSV, "Agent Smith,1990-05-17\n");
+		
+		assertThat(transfer.getState()).isEqualTo(State.FAILED);
+		assertThat(transfer.getError()).contains("must name the columns");
+		assertThat(transfers.findAll()).contains(transfer);
+	}
+
+}
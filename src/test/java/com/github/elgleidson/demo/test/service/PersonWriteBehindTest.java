@@ -0,0 +1,105 @@
+package com.github.elgleidson.demo.test.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.repository.PersonRepository;
+import com.github.elgleidson.demo.test.service.PersonWriteStatus.State;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "demo.persons.write-behind.enabled=true", "demo.persons.write-behind.max-batch=10",
+		"demo.persons.write-behind.max-delay=20ms" })
+public class PersonWriteBehindTest {
+
+	private static final String NAME = "Agent Smith";
+	private static final LocalDate BIRTHDAY = LocalDate.now().minusYears(30);
+	private static final String PHONE = "1234567890";
+
+	@Autowired
+	private PersonWriteBehind writeBehind;
+
+	@Autowired
+	private PersonRepository repository;
+
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	private Person getPerson(int i) {
+		return new Person().name(NAME).birthday(BIRTHDAY).phone(PHONE).nin(String.format("AB%06dC", i));
+	}
+
+	private PersonWriteStatus await(String trackingId) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		PersonWriteStatus status = writeBehind.status(trackingId).get();
+		while (status.getState() == State.QUEUED && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			status = writeBehind.status(trackingId).get();
+		}
+		return status;
+	}
+
+	@Test
+	public void testSubmittedPersonsAreCreatedInGroups() throws Exception {
+		List<String> trackingIds = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			trackingIds.add(writeBehind.submit(getPerson(i)).get());
+		}
+
+		for (String trackingId : trackingIds) {
+			PersonWriteStatus status = await(trackingId);
+			assertThat(status.getState()).isEqualTo(State.CREATED);
+			assertThat(repository.findById(status.getId())).isPresent();
+		}
+		assertThat(repository.count()).isEqualTo(25);
+	}
+
+	@Test
+	public void testDuplicateNinFailsOnlyItsOwnEntry() throws Exception {
+		String first = writeBehind.submit(getPerson(1)).get();
+		String duplicate = writeBehind.submit(getPerson(1)).get();
+		String other = writeBehind.submit(getPerson(2)).get();
+
+		assertThat(await(first).getState()).isEqualTo(State.CREATED);
+		assertThat(await(duplicate).getState()).isEqualTo(State.FAILED);
+		assertThat(await(duplicate).getErrors()).containsExactly(PersonBatchImporter.DUPLICATE_NIN);
+		assertThat(await(other).getState()).isEqualTo(State.CREATED);
+	}
+
+	@Test
+	public void testUnknownTrackingId() {
+		assertThat(writeBehind.status("unknown")).isNotPresent();
+	}
+
+	@Test
+	public void testStopDrainsTheQueueAndRejectsNewPersons() {
+		List<String> trackingIds = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			trackingIds.add(writeBehind.submit(getPerson(i)).get());
+		}
+
+		writeBehind.stop();
+		try {
+			assertThat(writeBehind.submit(getPerson(1000))).isNotPresent();
+			assertThat(writeBehind.queued()).isZero();
+			assertThat(trackingIds).allSatisfy(trackingId -> assertThat(writeBehind.status(trackingId).get().getState()).isEqualTo(State.CREATED));
+			assertThat(repository.count()).isEqualTo(200);
+		} finally {
+			writeBehind.start();
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.github.elgleidson.demo.test.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SingleFlightTest {
+
+	private final Counter coalesced = new SimpleMeterRegistry().counter("coalesced");
+
+	private final SingleFlight<String, StringBuilder> flight = new SingleFlight<>(Duration.ofMillis(100), StringBuilder::new, coalesced);
+
+	@Test
+	public void testWaitingCallersGetTheirOwnShare() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<StringBuilder> first = CompletableFuture.supplyAsync(() -> flight.execute("key", () -> {
+			started.countDown();
+			await(release);
+			return new StringBuilder("value");
+		}));
+		started.await(5, TimeUnit.SECONDS);
+		CompletableFuture<StringBuilder> second = CompletableFuture.supplyAsync(() -> flight.execute("key", () -> new StringBuilder("other")));
+		while (coalesced.count() < 1) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS).toString()).isEqualTo("value");
+		assertThat(second.get(5, TimeUnit.SECONDS).toString()).isEqualTo("value");
+		assertThat(second.get()).isNotSameAs(first.get());
+	}
+
+	@Test
+	public void testWaitingCallersGiveUpAfterTheTimeout() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<StringBuilder> first = CompletableFuture.supplyAsync(() -> flight.execute("key", () -> {
+			started.countDown();
+			await(release);
+			return new StringBuilder("value");
+		}));
+		started.await(5, TimeUnit.SECONDS);
+
+		assertThatThrownBy(() -> flight.execute("key", () -> new StringBuilder("other"))).isInstanceOf(QueryTimeoutException.class);
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS).toString()).isEqualTo("value");
+	}
+
+	@Test
+	public void testNothingIsKeptOnceTheCallIsOver() {
+		AtomicInteger calls = new AtomicInteger();
+		flight.execute("key", () -> new StringBuilder("value" + calls.incrementAndGet()));
+		assertThatThrownBy(() -> flight.execute("key", () -> {
+			calls.incrementAndGet();
+			throw new IllegalStateException("failed");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(flight.execute("key", () -> new StringBuilder("value" + calls.incrementAndGet())).toString()).isEqualTo("value3");
+		assertThat(coalesced.count()).isZero();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
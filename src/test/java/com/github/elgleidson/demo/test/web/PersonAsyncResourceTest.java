@@ -0,0 +1,109 @@
+package com.github.elgleidson.demo.test.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.github.elgleidson.demo.test.service.PersonBatchResult;
+import com.github.elgleidson.demo.test.service.PersonWriteBehind;
+import com.github.elgleidson.demo.test.service.PersonWriteStatus;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = PersonAsyncResource.class, properties = "demo.persons.write-behind.enabled=true")
+public class PersonAsyncResourceTest {
+
+	private static final String BASE_URI = "/api/persons/async";
+	private static final String TRACKING_ID = "0b6f6c51-4a8e-4a51-9d4b-2f4c62d1c0aa";
+	private static final LocalDate BIRTHDAY = LocalDate.now().minusYears(30);
+
+	@Autowired
+	private MockMvc mvc;
+
+	@MockBean
+	private PersonWriteBehind writeBehind;
+
+	private String json() throws Exception {
+		return new JSONObject().put("name", "Agent Smith").put("birthday", BIRTHDAY).put("nin", "AB123456C").toString();
+	}
+
+	@Test
+	public void testCreateIsAcceptedWithATrackingId() throws Exception {
+		doAnswer(i -> Optional.of(TRACKING_ID)).when(writeBehind).submit(Mockito.any());
+
+		mvc.perform(post(BASE_URI).contentType(MediaType.APPLICATION_JSON).content(json()))
+				.andDo(print())
+				.andExpect(status().isAccepted())
+				.andExpect(header().string(HttpHeaders.LOCATION, "http://localhost" + BASE_URI + "/" + TRACKING_ID))
+				.andExpect(jsonPath("$.trackingId", is(TRACKING_ID)))
+				.andExpect(jsonPath("$.state", is("QUEUED")));
+	}
+
+	@Test
+	public void testCreateWithFullQueueIsTooManyRequests() throws Exception {
+		doAnswer(i -> Optional.empty()).when(writeBehind).submit(Mockito.any());
+
+		mvc.perform(post(BASE_URI).contentType(MediaType.APPLICATION_JSON).content(json()))
+				.andDo(print())
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+	}
+
+	@Test
+	public void testCreateInvalidPersonIsRejectedBeforeQueueing() throws Exception {
+		mvc.perform(post(BASE_URI).contentType(MediaType.APPLICATION_JSON).content(new JSONObject().put("birthday", BIRTHDAY).toString()))
+				.andDo(print())
+				.andExpect(status().isBadRequest());
+		Mockito.verify(writeBehind, Mockito.never()).submit(Mockito.any());
+	}
+
+	@Test
+	public void testGetStatus() throws Exception {
+		doAnswer(i -> Optional.of(PersonWriteStatus.of(TRACKING_ID, PersonBatchResult.created(0, 42L)))).when(writeBehind).status(TRACKING_ID);
+
+		mvc.perform(get(BASE_URI + "/{trackingId}", TRACKING_ID))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.state", is("CREATED")))
+				.andExpect(jsonPath("$.id", is(42)));
+	}
+
+	@Test
+	public void testGetFailedStatus() throws Exception {
+		doAnswer(i -> Optional.of(PersonWriteStatus.failed(TRACKING_ID, Collections.singletonList("NIN already registered")))).when(writeBehind)
+				.status(TRACKING_ID);
+
+		mvc.perform(get(BASE_URI + "/{trackingId}", TRACKING_ID))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.state", is("FAILED")))
+				.andExpect(jsonPath("$.errors[0]", is("NIN already registered")));
+	}
+
+	@Test
+	public void testGetUnknownStatus() throws Exception {
+		doAnswer(i -> Optional.empty()).when(writeBehind).status(Mockito.anyString());
+
+		mvc.perform(get(BASE_URI + "/{trackingId}", TRACKING_ID)).andExpect(status().isNotFound());
+	}
+
+}
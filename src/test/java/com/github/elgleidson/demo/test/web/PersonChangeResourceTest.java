@@ -0,0 +1,104 @@
+package com.github.elgleidson.demo.test.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.github.elgleidson.demo.test.domain.PersonChange;
+import com.github.elgleidson.demo.test.domain.PersonChange.Operation;
+import com.github.elgleidson.demo.test.domain.PersonView;
+import com.github.elgleidson.demo.test.service.PersonChangeLog;
+import com.github.elgleidson.demo.test.service.PersonChanges;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = PersonChangeResource.class)
+public class PersonChangeResourceTest {
+
+	private static final String URI = "/api/persons/changes";
+
+	@Autowired
+	private MockMvc mvc;
+
+	@MockBean
+	private PersonChangeLog changeLog;
+
+	@MockBean
+	private PersonChangeStream stream;
+
+	@Test
+	public void testGetChangesAfterToken() throws Exception {
+		PersonView smith = new PersonView(1L, "Agent Smith", LocalDate.of(1990, 5, 17), "1234567890", "AB123456C");
+		PersonChanges changes = new PersonChanges(Arrays.asList(new PersonChange(11, Operation.UPDATE, 1L, smith),
+				new PersonChange(12, Operation.DELETE, 2L, null)), 12, true);
+		doAnswer(i -> Optional.of(changes)).when(changeLog).changesSince(10, 2);
+
+		mvc.perform(get(URI).param("since", "10").param("size", "2"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(header().string(PersonChangeResource.CHANGE_TOKEN, "12"))
+				.andExpect(jsonPath("$.changes[0].seq", is(11)))
+				.andExpect(jsonPath("$.changes[0].operation", is("UPDATE")))
+				.andExpect(jsonPath("$.changes[0].person.nin", is("AB123456C")))
+				.andExpect(jsonPath("$.changes[1].operation", is("DELETE")))
+				.andExpect(jsonPath("$.changes[1].id", is(2)))
+				.andExpect(jsonPath("$.changes[1].person", nullValue()))
+				.andExpect(jsonPath("$.next", is(12)))
+				.andExpect(jsonPath("$.more", is(true)));
+	}
+
+	@Test
+	public void testGetChangesFromDeletedTokenIsGone() throws Exception {
+		doAnswer(i -> Optional.empty()).when(changeLog).changesSince(3, 100);
+		doAnswer(i -> 42L).when(changeLog).head();
+
+		mvc.perform(get(URI).param("since", "3"))
+				.andExpect(status().isGone())
+				.andExpect(header().string(PersonChangeResource.CHANGE_TOKEN, "42"));
+	}
+
+	@Test
+	public void testGetChangesWithInvalidParameters() throws Exception {
+		mvc.perform(get(URI).param("since", "-1")).andExpect(status().isBadRequest());
+		mvc.perform(get(URI).param("size", "0")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testStreamChangesResumesAfterLastEventId() throws Exception {
+		doAnswer(i -> true).when(changeLog).isAvailable(7);
+		doAnswer(i -> new SseEmitter()).when(stream).subscribe(7);
+
+		mvc.perform(get(URI).param("since", "3").header(PersonChangeResource.LAST_EVENT_ID, "7").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted());
+		verify(stream).subscribe(7);
+	}
+
+	@Test
+	public void testStreamChangesFromDeletedTokenIsGone() throws Exception {
+		doAnswer(i -> false).when(changeLog).isAvailable(3);
+
+		mvc.perform(get(URI).param("since", "3").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(status().isGone());
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.github.elgleidson.demo.test.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.github.elgleidson.demo.test.domain.PersonChange;
+import com.github.elgleidson.demo.test.domain.PersonChange.Operation;
+import com.github.elgleidson.demo.test.service.PersonChangeLog;
+import com.github.elgleidson.demo.test.service.PersonChanges;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PersonChangeStreamTest {
+
+	private final PersonChangeLog changeLog = Mockito.mock(PersonChangeLog.class);
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final PersonChangeStream stream = new PersonChangeStream();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Before
+	public void setUp() {
+		ReflectionTestUtils.setField(stream, "changeLog", changeLog);
+		ReflectionTestUtils.setField(stream, "meterRegistry", meterRegistry);
+		// polled by the test
+		ReflectionTestUtils.setField(stream, "pollInterval", Duration.ofHours(1));
+		ReflectionTestUtils.setField(stream, "heartbeat", Duration.ofHours(1));
+		ReflectionTestUtils.setField(stream, "timeout", Duration.ofHours(1));
+		ReflectionTestUtils.setField(stream, "pageSize", 10);
+		ReflectionTestUtils.setField(stream, "senderThreads", 2);
+		ReflectionTestUtils.setField(stream, "sendTimeout", Duration.ofMillis(100));
+		ReflectionTestUtils.setField(stream, "queueCapacity", 10);
+		stream.start();
+
+		Mockito.doReturn(1L).when(changeLog).head();
+		Mockito.doReturn(Optional.of(new PersonChanges(Collections.singletonList(new PersonChange(1, Operation.DELETE, 7L, null)), 1, false)))
+				.when(changeLog).changesSince(0, 10);
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		stream.stop();
+	}
+
+	private double subscribers() {
+		return meterRegistry.get("person.changes.subscribers").gauge().value();
+	}
+
+	@Test
+	public void testSlowSubscriberHoldsUpNeitherTheOthersNorTheFeed() throws Exception {
+		CountDownLatch slowBlocked = new CountDownLatch(1);
+		stream.subscribe(new ScriptedEmitter(() -> {
+			slowBlocked.countDown();
+			release.await();
+		}), 0);
+		CountDownLatch fastSent = new CountDownLatch(1);
+		stream.subscribe(new ScriptedEmitter(fastSent::countDown), 0);
+
+		stream.poll();
+		assertThat(slowBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(fastSent.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(subscribers()).isEqualTo(2);
+
+		Thread.sleep(150);
+		stream.poll();
+		assertThat(subscribers()).isEqualTo(1);
+	}
+
+	private interface Send {
+
+		void run() throws InterruptedException;
+
+	}
+
+	/**
+	 * Lets the subscription comment through and runs {@code onSend} for every event after it.
+	 */
+	private static final class ScriptedEmitter extends SseEmitter {
+
+		private final AtomicInteger sends = new AtomicInteger();
+
+		private final Send onSend;
+
+		ScriptedEmitter(Send onSend) {
+			this.onSend = onSend;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (sends.getAndIncrement() == 0) {
+				return;
+			}
+			try {
+				onSend.run();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+
+	}
+
+}
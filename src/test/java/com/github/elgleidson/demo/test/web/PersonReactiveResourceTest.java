@@ -0,0 +1,242 @@
+package com.github.elgleidson.demo.test.web;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.github.elgleidson.demo.test.config.ReactiveConfiguration;
+import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonCollectionVersion;
+import com.github.elgleidson.demo.test.domain.PersonView;
+import com.github.elgleidson.demo.test.service.PersonLookup;
+import com.github.elgleidson.demo.test.service.PersonLookupResult;
+import com.github.elgleidson.demo.test.service.PersonService;
+
+@RunWith(SpringRunner.class)
+@WebFluxTest(controllers = PersonReactiveResource.class)
+@Import(ReactiveConfiguration.class)
+@TestPropertySource(properties = "demo.persons.page.max-size=2")
+public class PersonReactiveResourceTest {
+
+	private static final String BASE_URI = "/api/persons";
+	private static final Long ID = 1L;
+	private static final String NAME = "Agent Smith";
+	private static final LocalDate BIRTHDAY = LocalDate.now().minusYears(30);
+	private static final String PHONE = "1234567890";
+	private static final String NIN = "AB123456C";
+
+	@Autowired
+	private WebTestClient client;
+
+	@MockBean
+	private PersonService service;
+
+	@Before
+	public void setUp() {
+		doAnswer(i -> new PersonCollectionVersion(0, 0)).when(service).collectionVersion();
+	}
+
+	private Person getPerson(Long id) {
+		return new Person().id(id).name(NAME).birthday(BIRTHDAY).phone(PHONE).nin(NIN).version(0L);
+	}
+
+	private PersonView getView(Long id) {
+		return new PersonView(id, NAME, BIRTHDAY, PHONE, NIN);
+	}
+
+	@Test
+	public void testGetAllReadsOneKeysetPageAtATime() {
+		doAnswer(i -> Lists.newArrayList(getView(1L), getView(2L))).when(service).findViewsAfter(0L, 2);
+		doAnswer(i -> Lists.newArrayList(getView(3L))).when(service).findViewsAfter(2L, 2);
+
+		client.get().uri(BASE_URI).accept(MediaType.APPLICATION_JSON).exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(3)
+				.jsonPath("$[2].id").isEqualTo(3);
+	}
+
+	@Test
+	public void testGetPageReturnsThePageShapeOfTheServletMode() {
+		doAnswer(i -> Lists.newArrayList(getView(1L), getView(2L))).when(service).findViewsAfter(0L, 2);
+
+		client.get().uri(BASE_URI + "?size=5").accept(MediaType.APPLICATION_JSON).exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content.length()").isEqualTo(2)
+				.jsonPath("$.next").isEqualTo("2");
+	}
+
+	@Test
+	public void testGetAllReturnsCollectionETag() {
+		doAnswer(i -> new PersonCollectionVersion(2, 5)).when(service).collectionVersion();
+		doAnswer(i -> Lists.newArrayList(getView(1L))).when(service).findViewsAfter(0L, 2);
+
+		client.get().uri(BASE_URI).accept(MediaType.APPLICATION_JSON).exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"2-5\"")
+				.expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+				.expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.expectBody().jsonPath("$.length()").isEqualTo(1);
+	}
+
+	@Test
+	public void testGetAllWithCurrentETagSkipsTheQuery() {
+		doAnswer(i -> new PersonCollectionVersion(2, 5)).when(service).collectionVersion();
+
+		client.get().uri(BASE_URI).accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, "W/\"2-5\"").exchange()
+				.expectStatus().isNotModified()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"2-5\"")
+				.expectBody().isEmpty();
+		verify(service, never()).findViewsAfter(anyLong(), anyInt());
+	}
+
+	@Test
+	public void testGetSummaryPageWithStaleETag() {
+		doAnswer(i -> new PersonCollectionVersion(2, 6)).when(service).collectionVersion();
+		doAnswer(i -> Collections.emptyList()).when(service).findSummariesAfter(0L, 2);
+
+		client.get().uri(BASE_URI + "/summary").header(HttpHeaders.IF_NONE_MATCH, "W/\"2-5\"").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"2-6\"")
+				.expectBody().jsonPath("$.content.length()").isEqualTo(0);
+	}
+
+	@Test
+	public void testSearchWithUnknownSortIsBadRequest() {
+		client.get().uri(BASE_URI + "/search?sort=nin").exchange().expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testLookup() {
+		doAnswer(i -> new PersonLookupResult(Collections.singletonMap(ID, getPerson(ID)), Collections.emptyMap(), Collections.emptyList(),
+				Lists.newArrayList(NIN))).when(service).lookup(any(PersonLookup.class));
+
+		client.post().uri(BASE_URI + "/lookup").contentType(MediaType.APPLICATION_JSON).syncBody("{\"ids\":[1],\"nins\":[\"" + NIN + "\"]}")
+				.exchange()
+				.expectStatus().isOk();
+	}
+
+	@Test
+	public void testServletOnlyEndpointsAreNotImplemented() {
+		client.post().uri(BASE_URI + "/batch").contentType(MediaType.APPLICATION_JSON).syncBody("[]").exchange().expectStatus().isEqualTo(501);
+		client.get().uri(BASE_URI + "/export").exchange().expectStatus().isEqualTo(501);
+		client.get().uri(BASE_URI + "/changes?since=0").exchange().expectStatus().isEqualTo(501);
+	}
+
+	@Test
+	public void testGetById() {
+		doAnswer(i -> Optional.of(getPerson(ID))).when(service).findById(ID);
+
+		client.get().uri(BASE_URI + "/{id}", ID).exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+				.expectBody().jsonPath("$.nin").isEqualTo(NIN);
+	}
+
+	@Test
+	public void testGetByNinNotFound() {
+		doAnswer(i -> Optional.empty()).when(service).findByNin(NIN);
+
+		client.get().uri(BASE_URI + "/nin/{nin}", NIN).exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testCreate() {
+		doAnswer(i -> i.<Person>getArgument(0).id(ID).version(0L)).when(service).save(any(Person.class));
+
+		client.post().uri(BASE_URI).contentType(MediaType.APPLICATION_JSON).syncBody(getPerson(null)).exchange()
+				.expectStatus().isCreated()
+				.expectBody().jsonPath("$.id").isEqualTo(ID.intValue());
+	}
+
+	@Test
+	public void testCreateInvalid() {
+		client.post().uri(BASE_URI).contentType(MediaType.APPLICATION_JSON).syncBody(getPerson(null).phone("x")).exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testCreateDuplicateNin() {
+		doThrow(new DataIntegrityViolationException("ux_person_nin")).when(service).save(any(Person.class));
+
+		client.post().uri(BASE_URI).contentType(MediaType.APPLICATION_JSON).syncBody(getPerson(null)).exchange()
+				.expectStatus().isEqualTo(409);
+	}
+
+	@Test
+	public void testUpdateIfMatch() {
+		doAnswer(i -> Optional.of(getPerson(ID).version(3L))).when(service).update(eq(ID), any(Person.class), eq(2L));
+
+		client.put().uri(BASE_URI + "/{id}", ID).header(HttpHeaders.IF_MATCH, "\"2\"").contentType(MediaType.APPLICATION_JSON)
+				.syncBody(getPerson(null)).exchange()
+				.expectStatus().isAccepted()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+	}
+
+	@Test
+	public void testUpdateStaleVersion() {
+		doThrow(new OptimisticLockingFailureException("stale")).when(service).update(eq(ID), any(Person.class), eq(1L));
+
+		client.put().uri(BASE_URI + "/{id}", ID).header(HttpHeaders.IF_MATCH, "\"1\"").contentType(MediaType.APPLICATION_JSON)
+				.syncBody(getPerson(null)).exchange()
+				.expectStatus().isEqualTo(412);
+	}
+
+	@Test
+	public void testUpdateNotFound() {
+		doAnswer(i -> Optional.empty()).when(service).update(eq(ID), any(Person.class), isNull());
+
+		client.put().uri(BASE_URI + "/{id}", ID).contentType(MediaType.APPLICATION_JSON).syncBody(getPerson(null)).exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testUpdateIfMatchNotFoundFailsThePrecondition() {
+		doAnswer(i -> Optional.empty()).when(service).update(eq(ID), any(Person.class), eq(2L));
+
+		client.put().uri(BASE_URI + "/{id}", ID).header(HttpHeaders.IF_MATCH, "\"2\"").contentType(MediaType.APPLICATION_JSON)
+				.syncBody(getPerson(null)).exchange()
+				.expectStatus().isEqualTo(412);
+	}
+
+	@Test
+	public void testDelete() {
+		client.delete().uri(BASE_URI + "/{id}", ID).exchange().expectStatus().isNoContent();
+	}
+
+	@Test
+	public void testSaturatedJdbcPoolIsServiceUnavailable() {
+		doThrow(new RejectedExecutionException("full")).when(service).findViewsAfter(anyLong(), anyInt());
+
+		client.get().uri(BASE_URI).exchange().expectStatus().isEqualTo(503);
+	}
+
+}
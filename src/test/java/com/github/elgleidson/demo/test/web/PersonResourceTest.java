@@ -1,42 +1,81 @@
 package com.github.elgleidson.demo.test.web;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.assertj.core.util.Lists;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.github.elgleidson.demo.test.config.WireFormatConfiguration;
 import com.github.elgleidson.demo.test.domain.Person;
+import com.github.elgleidson.demo.test.domain.PersonCollectionVersion;
+import com.github.elgleidson.demo.test.domain.PersonSummary;
+import com.github.elgleidson.demo.test.domain.PersonView;
+import com.github.elgleidson.demo.test.service.PersonBatchImporter;
+import com.github.elgleidson.demo.test.service.PersonBatchResult;
+import com.github.elgleidson.demo.test.service.PersonLookup;
+import com.github.elgleidson.demo.test.service.PersonLookupResult;
+import com.github.elgleidson.demo.test.service.PersonSearch;
 import com.github.elgleidson.demo.test.service.PersonService;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(controllers = PersonResource.class)
+@Import(WireFormatConfiguration.class)
 public class PersonResourceTest {
 	
 	private static final String BASE_URI = "/api/persons";
@@ -52,6 +91,15 @@ public class PersonResourceTest {
 	@MockBean
 	private PersonService service;
 	
+	@MockBean
+	private PersonBatchImporter importer;
+	
+	@Autowired
+	private MappingJackson2SmileHttpMessageConverter smileConverter;
+	
+	@Autowired
+	private MappingJackson2CborHttpMessageConverter cborConverter;
+	
 	private Person getPerson() {
 		return getPerson(ID, NAME, BIRTHDAY, PHONE, NIN);
 	}
@@ -62,6 +110,12 @@ public class PersonResourceTest {
 		return person;
 	}
 	
+	private List<PersonView> views(Person... persons) {
+		return Arrays.stream(persons)
+				.map(p -> new PersonView(p.getId(), p.getName(), p.getBirthday(), p.getPhone(), p.getNin()))
+				.collect(Collectors.toList());
+	}
+	
 	private String birthDayFormat(LocalDate birthday) {
 		return birthday.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
 	}
@@ -85,7 +139,7 @@ public class PersonResourceTest {
 	@Test
 	public void testGetAllWithOneRegister() throws Exception {
 		Person person = getPerson();
-		doAnswer(i -> Lists.list(person)).when(service).findAll();
+		doAnswer(i -> views(person)).when(service).findAllViews();
 		
 		mvc.perform(get(BASE_URI).contentType(MediaType.APPLICATION_JSON))
 				.andDo(print())
@@ -108,7 +162,7 @@ public class PersonResourceTest {
 		
 		Person person1 = getPerson();
 		Person person2 = getPerson(id, name, birthday, phone, nin);
-		doAnswer(i -> Lists.list(person1, person2)).when(service).findAll();
+		doAnswer(i -> views(person1, person2)).when(service).findAllViews();
 		
 		mvc.perform(get(BASE_URI).contentType(MediaType.APPLICATION_JSON))
 				.andDo(print())
@@ -131,7 +185,7 @@ public class PersonResourceTest {
 		Person person = getPerson();
 		person.setPhone(null);
 		person.setNin(null);
-		doAnswer(i -> Lists.list(person)).when(service).findAll();
+		doAnswer(i -> views(person)).when(service).findAllViews();
 		
 		mvc.perform(get(BASE_URI).contentType(MediaType.APPLICATION_JSON))
 				.andDo(print())
@@ -144,6 +198,91 @@ public class PersonResourceTest {
 			    .andExpect(jsonPath("$[0].nin", is(nullValue())));
 	}
 	
+	@Test
+	public void testGetPageWithFullPage() throws Exception {
+		final Long id = ID+1;
+		Person person1 = getPerson();
+		Person person2 = getPerson(id, "Thomas Anderson", BIRTHDAY, "9876543210", "XY987654Z");
+		doAnswer(i -> views(person1, person2)).when(service).findViewsAfter(0L, 2);
+		
+		mvc.perform(get(BASE_URI).param("size", "2").contentType(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isOk())
+			    .andExpect(jsonPath("$.content", hasSize(2)))
+			    .andExpect(jsonPath("$.content[0].id", is(ID.intValue())))
+			    .andExpect(jsonPath("$.content[1].id", is(id.intValue())))
+			    .andExpect(jsonPath("$.next", is(String.valueOf(id))));
+	}
+	
+	@Test
+	public void testGetPageWithLastPage() throws Exception {
+		Person person = getPerson();
+		doAnswer(i -> views(person)).when(service).findViewsAfter(ID-1, 2);
+		
+		mvc.perform(get(BASE_URI).param("after", String.valueOf(ID-1)).param("size", "2").contentType(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isOk())
+			    .andExpect(jsonPath("$.content", hasSize(1)))
+			    .andExpect(jsonPath("$.content[0].id", is(ID.intValue())))
+			    .andExpect(jsonPath("$.next", is(nullValue())));
+	}
+	
+	@Test
+	public void testGetSummaryPage() throws Exception {
+		PersonSummary summary = new PersonSummary() {
+			@Override
+			public Long getId() {
+				return ID;
+			}
+			
+			@Override
+			public String getName() {
+				return NAME;
+			}
+		};
+		doAnswer(i -> Lists.list(summary)).when(service).findSummariesAfter(0L, 100);
+		
+		mvc.perform(get(BASE_URI+"/summary").contentType(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content", hasSize(1)))
+				.andExpect(jsonPath("$.content[0].id", is(ID.intValue())))
+				.andExpect(jsonPath("$.content[0].name", is(NAME)))
+				.andExpect(jsonPath("$.content[0].birthday").doesNotExist())
+				.andExpect(jsonPath("$.next", is(nullValue())));
+	}
+	
+	@Test
+	public void testGetPageWithInvalidSize() throws Exception {
+		mvc.perform(get(BASE_URI).param("size", "0").contentType(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void testStreamAllAsNdjson() throws Exception {
+		Person person1 = getPerson();
+		Person person2 = getPerson(ID+1, "Thomas Anderson", BIRTHDAY, "9876543210", "XY987654Z");
+		doAnswer(i -> {
+			Consumer<Person> consumer = i.getArgument(0);
+			consumer.accept(person1);
+			consumer.accept(person2);
+			return null;
+		}).when(service).streamAll(Mockito.any());
+		
+		MvcResult result = mvc.perform(get(BASE_URI).accept(PersonResource.APPLICATION_NDJSON_VALUE))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		
+		String expected = "{\"id\":1,\"name\":\"Agent Smith\",\"birthday\":\"" + birthDayFormat(BIRTHDAY) + "\",\"phone\":\"1234567890\",\"nin\":\"AB123456C\"}\n"
+				+ "{\"id\":2,\"name\":\"Thomas Anderson\",\"birthday\":\"" + birthDayFormat(BIRTHDAY) + "\",\"phone\":\"9876543210\",\"nin\":\"XY987654Z\"}\n";
+		mvc.perform(asyncDispatch(result))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(PersonResource.APPLICATION_NDJSON_VALUE))
+				.andExpect(content().string(expected));
+	}
+	
 	@Test
 	public void testGetByIdWithOnePersonWithThisId() throws Exception {
 		Person person = getPerson();
@@ -284,6 +423,22 @@ public class PersonResourceTest {
 			    .andExpect(jsonPath("$.nin", is(ninFormat(NIN))));
 	}
 	
+	@Test
+	public void testCreateAPersonWithDuplicateNin() throws Exception {
+		doThrow(new DataIntegrityViolationException("ux_person_nin")).when(service).save(Mockito.any());
+		
+		String json = new JSONObject()
+				.put("name", NAME)
+				.put("birthday", BIRTHDAY)
+				.put("phone", PHONE)
+				.put("nin", NIN)
+				.toString();
+		
+		mvc.perform(post(BASE_URI).contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isConflict());
+	}
+	
 	@Test
 	public void testCreateAPersonWithId() throws Exception {
 		doAnswer(i -> {
@@ -481,11 +636,232 @@ public class PersonResourceTest {
 				.andExpect(status().isBadRequest());
 	}
 	
+	private void mockImporter() {
+		doAnswer(i -> {
+			Iterator<Person> persons = i.getArgument(0);
+			Consumer<PersonBatchResult> results = i.getArgument(1);
+			long id = ID;
+			for (int index = 0; persons.hasNext(); index++) {
+				Person person = persons.next();
+				results.accept(person.getName() == null ? PersonBatchResult.failed(index, Lists.list("Name cannot be empty or null")) : PersonBatchResult.created(index, id++));
+			}
+			return null;
+		}).when(importer).importAll(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	public void testCreateBatchFromJsonArray() throws Exception {
+		mockImporter();
+		
+		String json = "[" + new JSONObject().put("name", NAME).put("birthday", BIRTHDAY).put("nin", NIN)
+				+ "," + new JSONObject().put("birthday", BIRTHDAY).put("nin", "XY987654Z") + "]";
+		
+		mvc.perform(post(BASE_URI+"/batch").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[0].index", is(0)))
+				.andExpect(jsonPath("$[0].status", is("CREATED")))
+				.andExpect(jsonPath("$[0].id", is(ID.intValue())))
+				.andExpect(jsonPath("$[1].index", is(1)))
+				.andExpect(jsonPath("$[1].status", is("FAILED")))
+				.andExpect(jsonPath("$[1].errors[0]", is("Name cannot be empty or null")));
+	}
+	
+	@Test
+	public void testCreateBatchFromNdjson() throws Exception {
+		mockImporter();
+		
+		String ndjson = new JSONObject().put("name", NAME).put("birthday", BIRTHDAY).put("nin", NIN) + "\n"
+				+ new JSONObject().put("name", "Thomas Anderson").put("birthday", BIRTHDAY).put("nin", "XY987654Z") + "\n";
+		
+		mvc.perform(post(BASE_URI+"/batch").contentType(PersonResource.APPLICATION_NDJSON_VALUE).content(ndjson))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[0].status", is("CREATED")))
+				.andExpect(jsonPath("$[1].status", is("CREATED")));
+	}
+	
+	@Test
+	public void testCreateBatchWithMalformedBody() throws Exception {
+		mockImporter();
+		
+		mvc.perform(post(BASE_URI+"/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"name\": }]"))
+				.andDo(print())
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].index", is(0)))
+				.andExpect(jsonPath("$[0].status", is("FAILED")))
+				.andExpect(jsonPath("$[0].errors[0]", startsWith(PersonResource.MALFORMED_BATCH)));
+	}
+	
+	@Test
+	public void testCreateBatchWithMalformedEntryReportsTheOnesBefore() throws Exception {
+		mockImporter();
+		
+		String ndjson = new JSONObject().put("name", NAME).put("birthday", BIRTHDAY).put("nin", NIN) + "\n"
+				+ new JSONObject().put("name", "Thomas Anderson").put("birthday", BIRTHDAY).put("nin", "XY987654Z") + "\n"
+				+ "{\"name\": }\n";
+		
+		mvc.perform(post(BASE_URI+"/batch").contentType(PersonResource.APPLICATION_NDJSON_VALUE).content(ndjson))
+				.andDo(print())
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$", hasSize(3)))
+				.andExpect(jsonPath("$[0].id", is(ID.intValue())))
+				.andExpect(jsonPath("$[1].status", is("CREATED")))
+				.andExpect(jsonPath("$[2].index", is(2)))
+				.andExpect(jsonPath("$[2].status", is("FAILED")))
+				.andExpect(jsonPath("$[2].errors[0]", startsWith(PersonResource.MALFORMED_BATCH)));
+	}
+	
+	@Test
+	public void testCreateBatchFromSmileSequence() throws Exception {
+		mockImporter();
+		
+		ObjectMapper smile = smileConverter.getObjectMapper();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (SequenceWriter writer = smile.writerFor(Person.class).writeValues(body)) {
+			writer.write(getPerson(null, NAME, BIRTHDAY, PHONE, NIN));
+			writer.write(getPerson(null, NAME, BIRTHDAY, PHONE, "XY987654Z"));
+		}
+		
+		mvc.perform(post(BASE_URI+"/batch").contentType(PersonResource.APPLICATION_SMILE_VALUE).content(body.toByteArray()))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[1].status", is("CREATED")));
+	}
+	
+	@Test
+	public void testGetByIdAsSmile() throws Exception {
+		doAnswer(i -> Optional.of(getPerson())).when(service).findById(ID);
+		
+		byte[] body = mvc.perform(get(BASE_URI+"/{id}", ID).accept(PersonResource.APPLICATION_SMILE_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(PersonResource.APPLICATION_SMILE_VALUE))
+				.andReturn().getResponse().getContentAsByteArray();
+		
+		Person person = smileConverter.getObjectMapper().readValue(body, Person.class);
+		assertThat(person.getId()).isEqualTo(ID);
+		assertThat(person.getBirthday()).isEqualTo(BIRTHDAY);
+		assertThat(person.getNin()).isEqualTo(NIN);
+	}
+	
+	@Test
+	public void testGetAllAsCbor() throws Exception {
+		doAnswer(i -> views(getPerson(), getPerson(ID+1, "Thomas Anderson", BIRTHDAY, PHONE, "XY987654Z"))).when(service).findAllViews();
+		
+		byte[] body = mvc.perform(get(BASE_URI).accept(PersonResource.APPLICATION_CBOR_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(PersonResource.APPLICATION_CBOR_VALUE))
+				.andReturn().getResponse().getContentAsByteArray();
+		
+		Person[] persons = cborConverter.getObjectMapper().readValue(body, Person[].class);
+		assertThat(persons).extracting(Person::getName).containsExactly(NAME, "Thomas Anderson");
+	}
+	
+	@Test
+	public void testCreateAPersonFromCbor() throws Exception {
+		doAnswer(i -> i.<Person>getArgument(0).id(ID).version(0L)).when(service).save(Mockito.any());
+		
+		byte[] body = cborConverter.getObjectMapper().writeValueAsBytes(getPerson(null, NAME, BIRTHDAY, PHONE, NIN));
+		
+		mvc.perform(post(BASE_URI).contentType(PersonResource.APPLICATION_CBOR_VALUE).content(body).accept(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.id", is(ID.intValue())))
+				.andExpect(jsonPath("$.birthday", is(birthDayFormat(BIRTHDAY))));
+	}
+	
+	@Test
+	public void testJsonStaysTheDefault() throws Exception {
+		doAnswer(i -> Optional.of(getPerson())).when(service).findById(ID);
+		
+		mvc.perform(get(BASE_URI+"/{id}", ID).accept(MediaType.ALL))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+	
+	@Test
+	public void testSearchReturnsCursorForTheSortKey() throws Exception {
+		Person person1 = getPerson();
+		Person person2 = getPerson(ID+1, "Thomas Anderson", LocalDate.of(1990, 1, 2), PHONE, "XY987654Z");
+		doAnswer(i -> Lists.list(person1, person2)).when(service).search(Mockito.any(), Mockito.eq(2));
+		
+		MvcResult result = mvc.perform(get(BASE_URI+"/search").param("name", "a").param("bornFrom", "1980-01-01").param("sort", "birthday,desc").param("size", "2"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content", hasSize(2)))
+				.andReturn();
+		String next = JsonPath.read(result.getResponse().getContentAsString(), "$.next");
+		
+		ArgumentCaptor<PersonSearch> captor = ArgumentCaptor.forClass(PersonSearch.class);
+		mvc.perform(get(BASE_URI+"/search").param("sort", "birthday,desc").param("after", next).param("size", "2"))
+				.andExpect(status().isOk());
+		Mockito.verify(service, Mockito.times(2)).search(captor.capture(), Mockito.eq(2));
+		PersonSearch resumed = captor.getValue();
+		assertThat(resumed.getSortBy()).isEqualTo(PersonSearch.SortKey.BIRTHDAY);
+		assertThat(resumed.getDirection()).isEqualTo(Direction.DESC);
+		assertThat(resumed).hasFieldOrPropertyWithValue("afterKey", LocalDate.of(1990, 1, 2)).hasFieldOrPropertyWithValue("afterId", ID+1);
+	}
+	
+	@Test
+	public void testSearchCursorIgnoresTheDefaultLocale() throws Exception {
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			doAnswer(i -> Lists.list(getPerson(ID, "IVAN", LocalDate.of(1990, 1, 2), PHONE, NIN))).when(service).search(Mockito.any(), Mockito.eq(1));
+			
+			MvcResult result = mvc.perform(get(BASE_URI+"/search").param("sort", "name").param("size", "1"))
+					.andExpect(status().isOk())
+					.andReturn();
+			String next = JsonPath.read(result.getResponse().getContentAsString(), "$.next");
+			
+			ArgumentCaptor<PersonSearch> captor = ArgumentCaptor.forClass(PersonSearch.class);
+			mvc.perform(get(BASE_URI+"/search").param("sort", "name").param("after", next).param("size", "1"))
+					.andExpect(status().isOk());
+			Mockito.verify(service, Mockito.times(2)).search(captor.capture(), Mockito.eq(1));
+			// lower(name) in the database maps I to i whatever the JVM's locale, not to a dotless i
+			assertThat(captor.getValue()).hasFieldOrPropertyWithValue("afterKey", "ivan");
+			assertThat(captor.getValue().getSortBy()).isEqualTo(PersonSearch.SortKey.NAME);
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+	
+	@Test
+	public void testSearchLastPageHasNoCursor() throws Exception {
+		doAnswer(i -> Lists.list(getPerson())).when(service).search(Mockito.any(), Mockito.eq(2));
+		
+		mvc.perform(get(BASE_URI+"/search").param("name", "agent").param("size", "2"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name", is(NAME)))
+				.andExpect(jsonPath("$.next", is(nullValue())));
+	}
+	
+	@Test
+	public void testSearchWithInvalidSortOrCursor() throws Exception {
+		mvc.perform(get(BASE_URI+"/search").param("sort", "nin")).andExpect(status().isBadRequest());
+		mvc.perform(get(BASE_URI+"/search").param("sort", "name,sideways")).andExpect(status().isBadRequest());
+		mvc.perform(get(BASE_URI+"/search").param("sort", "birthday").param("after", "bm90LWEtZGF0ZTox")).andExpect(status().isBadRequest());
+		mvc.perform(get(BASE_URI+"/search").param("bornFrom", "yesterday")).andExpect(status().isBadRequest());
+		Mockito.verify(service, Mockito.never()).search(Mockito.any(), Mockito.anyInt());
+	}
+	
+	private void mockUpdate() {
+		doAnswer(i -> {
+			Long id = i.getArgument(0);
+			Person person = i.getArgument(1);
+			Long version = i.getArgument(2);
+			return Optional.of(person.copy().id(id).version(version == null ? null : version + 1));
+		}).when(service).update(Mockito.anyLong(), Mockito.any(), Mockito.any());
+	}
+	
 	@Test
 	public void testUpdateAnExistentPerson() throws Exception {
-		Person person = getPerson();
-		doAnswer(i -> Optional.of(person)).when(service).findById(Mockito.anyLong());
-		doAnswer(i -> i.getArgument(0)).when(service).save(Mockito.any());
+		mockUpdate();
 		
 		final String name = "Thomas Anderson";
 		final LocalDate birthday = LocalDate.now().minusYears(30);
@@ -509,10 +885,180 @@ public class PersonResourceTest {
 			    .andExpect(jsonPath("$.nin", is(ninFormat(nin))));
 	}
 	
+	@Test
+	public void testUpdateAPersonWithDuplicateNin() throws Exception {
+		doThrow(new DataIntegrityViolationException("ux_person_nin")).when(service).update(Mockito.anyLong(), Mockito.any(), Mockito.any());
+		
+		String json = new JSONObject()
+				.put("name", NAME)
+				.put("birthday", BIRTHDAY)
+				.put("phone", PHONE)
+				.put("nin", "XY987654Z")
+				.toString();
+				
+		mvc.perform(put(BASE_URI+"/{id}", ID).contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isConflict());
+	}
+	
+	@Test
+	public void testUpdateAnExistentPersonWithMatchingVersion() throws Exception {
+		mockUpdate();
+		
+		String json = new JSONObject()
+				.put("name", "Thomas Anderson")
+				.put("birthday", BIRTHDAY)
+				.put("phone", PHONE)
+				.put("nin", NIN)
+				.toString();
+		
+		mvc.perform(put(BASE_URI+"/{id}", ID).header(HttpHeaders.IF_MATCH, "\"3\"").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isAccepted())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+				.andExpect(jsonPath("$.id", is(ID.intValue())))
+				.andExpect(jsonPath("$.name", is("Thomas Anderson")))
+				.andExpect(jsonPath("$.version").doesNotExist());
+		Mockito.verify(service).update(Mockito.eq(ID), Mockito.any(), Mockito.eq(3L));
+	}
+	
+	@Test
+	public void testUpdateAnExistentPersonWithStaleVersion() throws Exception {
+		doThrow(new OptimisticLockingFailureException("stale")).when(service).update(Mockito.anyLong(), Mockito.any(), Mockito.any());
+		
+		String json = new JSONObject()
+				.put("name", NAME)
+				.put("birthday", BIRTHDAY)
+				.toString();
+		
+		mvc.perform(put(BASE_URI+"/{id}", ID).header(HttpHeaders.IF_MATCH, "\"2\"").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isPreconditionFailed());
+	}
+	
+	@Test
+	public void testUpdateWithWeakIfMatch() throws Exception {
+		mockUpdate();
+		
+		String json = new JSONObject()
+				.put("name", NAME)
+				.put("birthday", BIRTHDAY)
+				.toString();
+		
+		mvc.perform(put(BASE_URI+"/{id}", ID).header(HttpHeaders.IF_MATCH, "W/\"2\"").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isPreconditionFailed());
+	}
+	
+	@Test
+	public void testGetByIdReturnsVersionAsETag() throws Exception {
+		Person person = getPerson().version(7L);
+		doAnswer(i -> Optional.of(person)).when(service).findById(Mockito.anyLong());
+		
+		mvc.perform(get(BASE_URI+"/{id}", ID).contentType(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"7\""))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(jsonPath("$.version").doesNotExist());
+	}
+	
+	@Test
+	public void testGetByIdWithCurrentETagIsNotModified() throws Exception {
+		Person person = getPerson().version(7L);
+		doAnswer(i -> Optional.of(person)).when(service).findById(Mockito.anyLong());
+		
+		mvc.perform(get(BASE_URI+"/{id}", ID).header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+				.andDo(print())
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"7\""))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andExpect(content().string(""));
+		
+		mvc.perform(get(BASE_URI+"/{id}", ID).header(HttpHeaders.IF_NONE_MATCH, "\"6\""))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(ID.intValue())));
+	}
+	
+	@Test
+	public void testGetByNinWithCurrentETagIsNotModified() throws Exception {
+		Person person = getPerson().version(2L);
+		doAnswer(i -> Optional.of(person)).when(service).findByNin(NIN);
+		
+		mvc.perform(get(BASE_URI+"/nin/{nin}", NIN).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+				.andDo(print())
+				.andExpect(status().isNotModified());
+	}
+	
+	@Test
+	public void testGetAllReturnsCollectionETag() throws Exception {
+		doAnswer(i -> new PersonCollectionVersion(2, 5)).when(service).collectionVersion();
+		
+		mvc.perform(get(BASE_URI))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "W/\"2-5\""))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+	}
+	
+	@Test
+	public void testGetAllWithCurrentETagSkipsTheQuery() throws Exception {
+		doAnswer(i -> new PersonCollectionVersion(2, 5)).when(service).collectionVersion();
+		
+		mvc.perform(get(BASE_URI).header(HttpHeaders.IF_NONE_MATCH, "W/\"2-5\""))
+				.andDo(print())
+				.andExpect(status().isNotModified())
+				.andExpect(header().stringValues(HttpHeaders.ETAG, "W/\"2-5\""))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andExpect(content().string(""));
+		Mockito.verify(service, Mockito.never()).findAllViews();
+	}
+	
+	@Test
+	public void testGetPageWithCurrentETagSkipsTheQuery() throws Exception {
+		doAnswer(i -> new PersonCollectionVersion(2, 5)).when(service).collectionVersion();
+		
+		mvc.perform(get(BASE_URI).param("size", "2").header(HttpHeaders.IF_NONE_MATCH, "\"1-1\", \"2-5\""))
+				.andDo(print())
+				.andExpect(status().isNotModified());
+		Mockito.verify(service, Mockito.never()).findViewsAfter(Mockito.anyLong(), Mockito.anyInt());
+	}
+	
+	@Test
+	public void testGetAllWithStaleETag() throws Exception {
+		doAnswer(i -> new PersonCollectionVersion(2, 6)).when(service).collectionVersion();
+		doAnswer(i -> views(getPerson())).when(service).findAllViews();
+		
+		mvc.perform(get(BASE_URI).header(HttpHeaders.IF_NONE_MATCH, "\"2-5\""))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "W/\"2-6\""))
+				.andExpect(jsonPath("$", hasSize(1)));
+	}
+	
+	@Test
+	public void testUpdateANonExistentPersonWithIfMatchFailsThePrecondition() throws Exception {
+		doAnswer(i -> Optional.empty()).when(service).update(Mockito.anyLong(), Mockito.any(), Mockito.any());
+		
+		String json = new JSONObject()
+				.put("name", NAME)
+				.put("birthday", BIRTHDAY)
+				.toString();
+		
+		mvc.perform(put(BASE_URI+"/{id}", (ID+1)).header(HttpHeaders.IF_MATCH, "\"2\"").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isPreconditionFailed());
+		mvc.perform(put(BASE_URI+"/{id}", (ID+1)).header(HttpHeaders.IF_MATCH, "*").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andDo(print())
+				.andExpect(status().isPreconditionFailed());
+	}
+	
 	@Test
 	public void testUpdateANonExistentPerson() throws Exception {
-		doAnswer(i -> Optional.empty()).when(service).findById(Mockito.anyLong());
-		doAnswer(i -> i.getArgument(0)).when(service).save(Mockito.any());
+		doAnswer(i -> Optional.empty()).when(service).update(Mockito.anyLong(), Mockito.any(), Mockito.any());
 		
 		final String name = "Thomas Anderson";
 		final LocalDate birthday = LocalDate.now().minusYears(30);
@@ -551,4 +1097,42 @@ public class PersonResourceTest {
 				.andDo(print())
 				.andExpect(status().isNoContent());
 	}
+	
+	@Test
+	public void testLookupReportsFoundAndMissing() throws Exception {
+		Person person = getPerson();
+		doAnswer(i -> new PersonLookupResult(Collections.singletonMap(ID, person), Collections.singletonMap(NIN, person), Arrays.asList(2L),
+				Arrays.asList("XY987654Z"))).when(service).lookup(Mockito.any());
+		
+		mvc.perform(post(BASE_URI+"/lookup").contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[1,2],\"nins\":[\"" + NIN + "\",\"XY987654Z\"]}"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.ids.1.name", is(NAME)))
+				.andExpect(jsonPath("$.nins." + NIN + ".id", is(ID.intValue())))
+				.andExpect(jsonPath("$.missingIds[0]", is(2)))
+				.andExpect(jsonPath("$.missingNins[0]", is("XY987654Z")));
+		
+		ArgumentCaptor<PersonLookup> lookup = ArgumentCaptor.forClass(PersonLookup.class);
+		Mockito.verify(service).lookup(lookup.capture());
+		assertThat(lookup.getValue().getIds()).containsExactly(1L, 2L);
+		assertThat(lookup.getValue().getNins()).containsExactly(NIN, "XY987654Z");
+	}
+	
+	@Test
+	public void testLookupOfTooManyOrNull() throws Exception {
+		String tooMany = LongStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(",", "{\"ids\":[", "]}"));
+		mvc.perform(post(BASE_URI+"/lookup").contentType(MediaType.APPLICATION_JSON).content(tooMany))
+				.andExpect(status().isBadRequest());
+		mvc.perform(post(BASE_URI+"/lookup").contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[1,null]}"))
+				.andExpect(status().isBadRequest());
+		Mockito.verify(service, Mockito.never()).lookup(Mockito.any());
+	}
+	
+	@Test
+	public void testGetByIdTimingOut() throws Exception {
+		doThrow(new QueryTimeoutException("Too slow")).when(service).findById(ID);
+		
+		mvc.perform(get(BASE_URI+"/{id}", ID))
+				.andExpect(status().isServiceUnavailable());
+	}
 }
@@ -0,0 +1,116 @@
+package com.github.elgleidson.demo.test.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.github.elgleidson.demo.test.service.PersonTransfer;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Format;
+import com.github.elgleidson.demo.test.service.PersonTransfer.Type;
+import com.github.elgleidson.demo.test.service.PersonTransfers;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = PersonTransferResource.class)
+public class PersonTransferResourceTest {
+
+	private static final String BASE_URI = "/api/persons";
+	private static final String CSV = "id,name,birthday,phone,nin\n1,Agent Smith,1990-05-17,,\n";
+
+	@Autowired
+	private MockMvc mvc;
+
+	@MockBean
+	private PersonTransfers transfers;
+
+	@Test
+	public void testExportStreamsTheFormatWithProgressHeaders() throws Exception {
+		PersonTransfer transfer = new PersonTransfer(Type.EXPORT, Format.CSV, 1L, 100);
+		doAnswer(i -> transfer).when(transfers).startExport(Format.CSV);
+		doAnswer(i -> {
+			i.<OutputStream>getArgument(1).write(CSV.getBytes(StandardCharsets.UTF_8));
+			return null;
+		}).when(transfers).export(Mockito.eq(transfer), Mockito.any());
+
+		mvc.perform(get(BASE_URI + "/export").param("format", "CSV"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/csv;charset=UTF-8"))
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"persons.csv\""))
+				.andExpect(header().string(PersonTransferResource.TRANSFER_ID, transfer.getId()))
+				.andExpect(header().string(PersonTransferResource.TOTAL_COUNT, "1"))
+				.andExpect(content().string(CSV));
+	}
+
+	@Test
+	public void testExportInUnknownFormatIsBadRequest() throws Exception {
+		mvc.perform(get(BASE_URI + "/export").param("format", "xml"))
+				.andDo(print())
+				.andExpect(status().isBadRequest());
+		Mockito.verify(transfers, Mockito.never()).startExport(Mockito.any());
+	}
+
+	@Test
+	public void testImportReturnsTheCompletedTransfer() throws Exception {
+		PersonTransfer transfer = new PersonTransfer(Type.IMPORT, Format.CSV, null, 100);
+		transfer.complete();
+		doAnswer(i -> transfer).when(transfers).importAll(Mockito.eq(Format.CSV), Mockito.any());
+
+		mvc.perform(post(BASE_URI + "/import").contentType(PersonTransferResource.TEXT_CSV_VALUE).content(CSV))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(header().string(PersonTransferResource.TRANSFER_ID, transfer.getId()))
+				.andExpect(jsonPath("$.type", is("IMPORT")))
+				.andExpect(jsonPath("$.state", is("COMPLETED")));
+	}
+
+	@Test
+	public void testImportOfMalformedInputIsBadRequest() throws Exception {
+		PersonTransfer transfer = new PersonTransfer(Type.IMPORT, Format.NDJSON, null, 100);
+		transfer.fail("Unexpected end-of-input");
+		doAnswer(i -> transfer).when(transfers).importAll(Mockito.eq(Format.NDJSON), Mockito.any());
+
+		mvc.perform(post(BASE_URI + "/import").contentType(PersonResource.APPLICATION_NDJSON_VALUE).content("{\"name\":"))
+				.andDo(print())
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.state", is("FAILED")))
+				.andExpect(jsonPath("$.error", is("Unexpected end-of-input")));
+	}
+
+	@Test
+	public void testGetTransfer() throws Exception {
+		PersonTransfer transfer = new PersonTransfer(Type.EXPORT, Format.NDJSON, 10L, 100);
+		doAnswer(i -> Optional.of(transfer)).when(transfers).find(transfer.getId());
+
+		mvc.perform(get(BASE_URI + "/transfers/" + transfer.getId()))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.state", is("RUNNING")))
+				.andExpect(jsonPath("$.expected", is(10)))
+				.andExpect(jsonPath("$.processed", is(0)));
+
+		mvc.perform(get(BASE_URI + "/transfers/unknown"))
+				.andDo(print())
+				.andExpect(status().isNotFound());
+	}
+
+}